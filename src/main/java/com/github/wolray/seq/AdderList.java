@@ -59,6 +59,11 @@ public interface AdderList<E> extends Seq<E>, List<E> {
         return size() == 0;
     }
 
+    @Override
+    default CloseableItr<E> iterator(int bufferSize) {
+        return CloseableItr.of(iterator());
+    }
+
     @Override
     default int lastIndexOf(Object o) {
         throw new UnsupportedOperationException();
@@ -0,0 +1,148 @@
+package com.github.wolray.seq;
+
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pulls elements out of any {@link Seq} by running its {@code supply} on a helper thread
+ * and handing them over in batches through a bounded buffer.
+ * <p>
+ * The producer stops when the iterator is closed or garbage collected,
+ * so an abandoned iterator never keeps an endless seq running.
+ *
+ * @author wolray
+ */
+public class AsyncItr<T> extends PickItr<T> {
+    private static final Object[] END = new Object[0];
+    private final Channel channel;
+    private Object[] batch = END;
+    private int index;
+
+    AsyncItr(Seq<T> seq, int bufferSize) {
+        Channel ch = new Channel(Math.max(bufferSize, 1));
+        WeakReference<AsyncItr<T>> owner = new WeakReference<>(this);
+        ch.thread = SeqUtil.newThread(() -> ch.produce(seq, owner));
+        ch.thread.start();
+        channel = ch;
+    }
+
+    @Override
+    public T pick() {
+        if (index >= batch.length) {
+            if (channel.done) {
+                stop();
+            }
+            batch = channel.take();
+            index = 0;
+            if (batch == END) {
+                channel.done = true;
+                channel.rethrow();
+                stop();
+            }
+        }
+        @SuppressWarnings("unchecked")
+        T t = (T)batch[index];
+        batch[index++] = null;
+        return t;
+    }
+
+    @Override
+    public void close() {
+        finish();
+        batch = END;
+        index = 0;
+        channel.close();
+    }
+
+    private static class Channel {
+        final BlockingQueue<Object[]> queue = new ArrayBlockingQueue<>(2);
+        final int bufferSize;
+        volatile boolean closed;
+        volatile Throwable error;
+        boolean done;
+        Thread thread;
+
+        Channel(int bufferSize) {
+            this.bufferSize = bufferSize;
+        }
+
+        <T> void produce(Seq<T> seq, WeakReference<?> owner) {
+            Object[][] buf = new Object[][]{new Object[bufferSize]};
+            int[] n = new int[1];
+            try {
+                seq.tillStop(t -> {
+                    buf[0][n[0]++] = t;
+                    if (n[0] == bufferSize) {
+                        put(buf[0], owner);
+                        buf[0] = new Object[bufferSize];
+                        n[0] = 0;
+                    }
+                });
+                if (n[0] > 0) {
+                    put(Arrays.copyOf(buf[0], n[0]), owner);
+                }
+            } catch (StopException ignore) {
+            } catch (Throwable e) {
+                error = e;
+            } finally {
+                try {
+                    put(END, owner);
+                } catch (StopException ignore) {}
+            }
+        }
+
+        void put(Object[] batch, WeakReference<?> owner) {
+            try {
+                while (!closed) {
+                    if (queue.offer(batch, 100, TimeUnit.MILLISECONDS)) {
+                        return;
+                    }
+                    if (owner.get() == null) {
+                        closed = true;
+                    }
+                }
+            } catch (InterruptedException e) {
+                closed = true;
+            }
+            throw StopException.INSTANCE;
+        }
+
+        Object[] take() {
+            if (closed) {
+                return END;
+            }
+            try {
+                return queue.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                close();
+                throw new RuntimeException(e);
+            }
+        }
+
+        void rethrow() {
+            Throwable e = error;
+            if (e instanceof RuntimeException) {
+                throw (RuntimeException)e;
+            }
+            if (e instanceof Error) {
+                throw (Error)e;
+            }
+            if (e != null) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        void close() {
+            if (!closed) {
+                closed = true;
+                done = true;
+                queue.clear();
+                thread.interrupt();
+            }
+        }
+    }
+}
@@ -18,6 +18,11 @@ public class BackedSeq<T, C extends Collection<T>> implements Seq<T> {
         backer.forEach(consumer);
     }
 
+    @Override
+    public CloseableItr<T> iterator(int bufferSize) {
+        return CloseableItr.of(backer.iterator());
+    }
+
     @Override
     public int sizeOrDefault() {
         return backer.size();
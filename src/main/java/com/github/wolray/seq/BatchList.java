@@ -1,30 +1,57 @@
 package com.github.wolray.seq;
 
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
+import java.util.NoSuchElementException;
 import java.util.function.Consumer;
 
 /**
+ * An append-only list stored in a directory of plain arrays. The first chunk holds
+ * {@code batchSize} (rounded up to a power of two) elements and every next chunk doubles,
+ * so any index maps to its chunk by bit arithmetic and {@link #get(int)} is O(1).
+ *
  * @author wolray
  */
 public class BatchList<T> implements AdderList<T> {
     public static final int DEFAULT_BATCH_SIZE = 10;
-    private transient final SinglyList<ArrayList<T>> list = new SinglyList<>();
-    private transient final int batchSize;
+    private static final int MAX_CHUNK_SIZE = 1 << 30;
+    private transient final int shift;
+    private transient Object[][] chunks = new Object[4][];
+    private transient int chunkCount;
+    private transient Object[] cur;
+    private transient int pos;
     private transient int size;
-    private transient ArrayList<T> cur;
 
     public BatchList() {
         this(DEFAULT_BATCH_SIZE);
     }
 
     public BatchList(int batchSize) {
-        this.batchSize = batchSize;
+        shift = Math.min(32 - Integer.numberOfLeadingZeros(Math.max(batchSize, 1) - 1), 30);
+    }
+
+    static int chunkIndex(int shift, int index) {
+        return 31 - Integer.numberOfLeadingZeros((index >>> shift) + 1);
+    }
+
+    static int chunkStart(int shift, int chunk) {
+        return ((1 << chunk) - 1) << shift;
+    }
+
+    static int chunkSize(int shift, int chunk) {
+        return (int)Math.min((long)1 << shift + chunk, MAX_CHUNK_SIZE);
     }
 
     @Override
+    @SuppressWarnings("unchecked")
     public void supply(Consumer<T> consumer) {
-        list.forEach(ls -> ls.forEach(consumer));
+        for (int k = 0; k < chunkCount; k++) {
+            Object[] chunk = chunks[k];
+            int n = k == chunkCount - 1 ? pos : chunk.length;
+            for (int i = 0; i < n; i++) {
+                consumer.accept((T)chunk[i]);
+            }
+        }
     }
 
     @Override
@@ -39,35 +66,92 @@ public class BatchList<T> implements AdderList<T> {
 
     @Override
     public Iterator<T> iterator() {
-        return PickItr.flat(list.iterator());
+        return new Iterator<T>() {
+            int k, i;
+
+            @Override
+            public boolean hasNext() {
+                return k < chunkCount - 1 || k == chunkCount - 1 && i < pos;
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public T next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                Object[] chunk = chunks[k];
+                T t = (T)chunk[i++];
+                if (i == chunk.length && k < chunkCount - 1) {
+                    k++;
+                    i = 0;
+                }
+                return t;
+            }
+        };
     }
 
     @Override
     public boolean add(T t) {
-        if (cur == null) {
-            cur = new ArrayList<>(batchSize);
-            list.add(cur);
+        if (cur == null || pos == cur.length) {
+            nextChunk();
         }
-        cur.add(t);
+        cur[pos++] = t;
         size++;
-        if (cur.size() == batchSize) {
-            cur = null;
-        }
         return true;
     }
 
+    private void nextChunk() {
+        if (cur != null) {
+            int capacity = chunkSize(shift, chunkCount - 1);
+            if (cur.length < capacity) {
+                cur = chunks[chunkCount - 1] = Arrays.copyOf(cur, capacity);
+                return;
+            }
+        }
+        if (chunkCount == chunks.length) {
+            chunks = Arrays.copyOf(chunks, chunkCount * 2);
+        }
+        cur = chunks[chunkCount] = new Object[chunkSize(shift, chunkCount)];
+        chunkCount++;
+        pos = 0;
+    }
+
+    public void trimToSize() {
+        if (cur != null && pos < cur.length) {
+            cur = chunks[chunkCount - 1] = Arrays.copyOf(cur, pos);
+        }
+    }
+
     @Override
     public void clear() {
-        list.forEach(ArrayList::clear);
-        list.clear();
+        chunks = new Object[4][];
+        chunkCount = 0;
+        cur = null;
+        pos = 0;
         size = 0;
     }
 
     @Override
+    @SuppressWarnings("unchecked")
     public T get(int index) {
-        if (index >= size) {
+        if (index < 0 || index >= size) {
             throw new IndexOutOfBoundsException(String.format("%d, %d", index, size));
         }
-        return list.get(index / batchSize).get(index % batchSize);
+        int k = chunkIndex(shift, index);
+        return (T)chunks[k][index - chunkStart(shift, k)];
+    }
+
+    @Override
+    public Object[] toArray() {
+        Object[] a = new Object[size];
+        int i = 0;
+        for (int k = 0; k < chunkCount; k++) {
+            Object[] chunk = chunks[k];
+            int n = k == chunkCount - 1 ? pos : chunk.length;
+            System.arraycopy(chunk, 0, a, i, n);
+            i += n;
+        }
+        return a;
     }
 }
@@ -0,0 +1,294 @@
+package com.github.wolray.seq;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Blocked gzip as written by bgzip: a series of gzip members of at most 64 KiB each, every member
+ * recording its own compressed size in a {@code BC} extra field. Since block boundaries are known
+ * without inflating, blocks are inflated in parallel and handed out in order. The file is still
+ * plain gzip to any other reader.
+ *
+ * @author wolray
+ */
+final class Bgzf {
+    static final int HEADER_SIZE = 18;
+    static final int BLOCK_SIZE = 0xff00;
+    static final int MAX_BLOCK_SIZE = 1 << 16;
+    static final int BLOCKS_PER_TASK = 16;
+    private static final byte[] EOF_BLOCK = {
+        0x1f, (byte)0x8b, 8, 4, 0, 0, 0, 0, 0, (byte)0xff, 6, 0, 'B', 'C', 2, 0, 0x1b, 0, 3, 0, 0, 0, 0, 0, 0, 0, 0, 0
+    };
+
+    private Bgzf() {}
+
+    static boolean isBgzf(byte[] head, int n) {
+        if (n < HEADER_SIZE || (head[0] & 0xff) != 0x1f || (head[1] & 0xff) != 0x8b || (head[3] & 4) == 0) {
+            return false;
+        }
+        return head[12] == 'B' && head[13] == 'C' && head[14] == 2 && head[15] == 0;
+    }
+
+    private static int u16(byte[] b, int i) {
+        return b[i] & 0xff | (b[i + 1] & 0xff) << 8;
+    }
+
+    private static int s32(byte[] b, int i) {
+        return u16(b, i) | u16(b, i + 2) << 16;
+    }
+
+    private static void put16(byte[] b, int i, int v) {
+        b[i] = (byte)v;
+        b[i + 1] = (byte)(v >>> 8);
+    }
+
+    private static void put32(byte[] b, int i, int v) {
+        put16(b, i, v);
+        put16(b, i + 2, v >>> 16);
+    }
+
+    static class Input extends InputStream {
+        private final InputStream in;
+        private final int parallelism;
+        private final ArrayDeque<ForkJoinTask<byte[]>> window = new ArrayDeque<>();
+        private final byte[] one = new byte[1];
+        private byte[] cur = new byte[0];
+        private int pos;
+        private boolean drained;
+
+        Input(InputStream in) {
+            this(in, Runtime.getRuntime().availableProcessors());
+        }
+
+        Input(InputStream in, int parallelism) {
+            this.in = in;
+            this.parallelism = Math.max(parallelism, 1);
+        }
+
+        @Override
+        public int read() throws IOException {
+            return read(one, 0, 1) < 0 ? -1 : one[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            while (pos == cur.length) {
+                if (!next()) {
+                    return -1;
+                }
+            }
+            int n = Math.min(len, cur.length - pos);
+            System.arraycopy(cur, pos, b, off, n);
+            pos += n;
+            return n;
+        }
+
+        @Override
+        public int available() {
+            return cur.length - pos;
+        }
+
+        private boolean next() throws IOException {
+            while (!drained && window.size() < parallelism) {
+                List<byte[]> blocks = new ArrayList<>(BLOCKS_PER_TASK);
+                byte[] block;
+                while (blocks.size() < BLOCKS_PER_TASK && (block = readBlock()) != null) {
+                    blocks.add(block);
+                }
+                if (blocks.size() < BLOCKS_PER_TASK) {
+                    drained = true;
+                }
+                if (!blocks.isEmpty()) {
+                    window.add(ForkJoinPool.commonPool().submit(() -> inflate(blocks)));
+                }
+            }
+            ForkJoinTask<byte[]> task = window.poll();
+            if (task == null) {
+                return false;
+            }
+            try {
+                cur = task.join();
+            } catch (RuntimeException e) {
+                throw new IOException(e.getCause() != null ? e.getCause() : e);
+            }
+            pos = 0;
+            return true;
+        }
+
+        /**
+         * Returns the deflated data and trailer of the next block, or null at the end of input.
+         */
+        private byte[] readBlock() throws IOException {
+            byte[] head = new byte[12];
+            int n = readFully(head, 0, head.length);
+            if (n == 0) {
+                return null;
+            }
+            if (n < head.length || (head[0] & 0xff) != 0x1f || (head[1] & 0xff) != 0x8b || (head[3] & 4) == 0) {
+                throw new IOException("not a BGZF block");
+            }
+            byte[] extra = new byte[u16(head, 10)];
+            if (readFully(extra, 0, extra.length) < extra.length) {
+                throw new EOFException();
+            }
+            int size = -1;
+            for (int i = 0; i + 4 <= extra.length; i += 4 + u16(extra, i + 2)) {
+                if (extra[i] == 'B' && extra[i + 1] == 'C' && u16(extra, i + 2) == 2) {
+                    size = u16(extra, i + 4) + 1;
+                }
+            }
+            if (size < 0) {
+                throw new IOException("not a BGZF block");
+            }
+            byte[] data = new byte[size - head.length - extra.length];
+            if (readFully(data, 0, data.length) < data.length) {
+                throw new EOFException();
+            }
+            return data;
+        }
+
+        private int readFully(byte[] b, int off, int len) throws IOException {
+            int n = 0;
+            while (n < len) {
+                int k = in.read(b, off + n, len - n);
+                if (k < 0) {
+                    break;
+                }
+                n += k;
+            }
+            return n;
+        }
+
+        private static byte[] inflate(List<byte[]> blocks) throws DataFormatException {
+            int total = 0;
+            for (byte[] d : blocks) {
+                total += s32(d, d.length - 4);
+            }
+            byte[] out = new byte[total];
+            Inflater inflater = new Inflater(true);
+            CRC32 crc = new CRC32();
+            try {
+                int pos = 0;
+                for (byte[] d : blocks) {
+                    int size = s32(d, d.length - 4);
+                    inflater.reset();
+                    inflater.setInput(d, 0, d.length - 8);
+                    for (int got = 0; got < size; ) {
+                        int k = inflater.inflate(out, pos + got, size - got);
+                        if (k == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                            throw new DataFormatException("truncated BGZF block");
+                        }
+                        got += k;
+                    }
+                    crc.reset();
+                    crc.update(out, pos, size);
+                    if ((int)crc.getValue() != s32(d, d.length - 8)) {
+                        throw new DataFormatException("BGZF block CRC mismatch");
+                    }
+                    pos += size;
+                }
+            } finally {
+                inflater.end();
+            }
+            return out;
+        }
+
+        @Override
+        public void close() throws IOException {
+            drained = true;
+            window.clear();
+            in.close();
+        }
+    }
+
+    static class Output extends OutputStream {
+        private final OutputStream out;
+        private final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        private final CRC32 crc = new CRC32();
+        private final byte[] block = new byte[BLOCK_SIZE];
+        private final byte[] packed = new byte[MAX_BLOCK_SIZE];
+        private int size;
+        private boolean closed;
+
+        Output(OutputStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            if (size == block.length) {
+                writeBlock();
+            }
+            block[size++] = (byte)b;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                if (size == block.length) {
+                    writeBlock();
+                }
+                int n = Math.min(len, block.length - size);
+                System.arraycopy(b, off, block, size, n);
+                size += n;
+                off += n;
+                len -= n;
+            }
+        }
+
+        private void writeBlock() throws IOException {
+            deflater.reset();
+            deflater.setInput(block, 0, size);
+            deflater.finish();
+            int n = deflater.deflate(packed, HEADER_SIZE, packed.length - HEADER_SIZE - 8);
+            if (!deflater.finished()) {
+                throw new IOException("BGZF block overflow");
+            }
+            System.arraycopy(EOF_BLOCK, 0, packed, 0, HEADER_SIZE);
+            int total = HEADER_SIZE + n + 8;
+            put16(packed, 16, total - 1);
+            crc.reset();
+            crc.update(block, 0, size);
+            put32(packed, HEADER_SIZE + n, (int)crc.getValue());
+            put32(packed, HEADER_SIZE + n + 4, size);
+            out.write(packed, 0, total);
+            size = 0;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                if (size > 0) {
+                    writeBlock();
+                }
+                out.write(EOF_BLOCK);
+                out.close();
+            } finally {
+                deflater.end();
+            }
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.github.wolray.seq;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A cursor over fixed-size binary records, reused for every record. Fields are read in place from the
+ * (usually memory-mapped) buffer by their byte offset within the record, in the byte order of the
+ * reader.
+ *
+ * @author wolray
+ */
+public class BinaryRow {
+    private final int size;
+    private ByteBuffer buf;
+    private int base;
+    private long index = -1;
+
+    BinaryRow(int size) {
+        this.size = size;
+    }
+
+    BinaryRow set(ByteBuffer buf, int base) {
+        this.buf = buf;
+        this.base = base;
+        index++;
+        return this;
+    }
+
+    private int at(int offset, int width) {
+        if (offset < 0 || offset + width > size) {
+            throw new IndexOutOfBoundsException("offset " + offset + " in record of " + size + " bytes");
+        }
+        return base + offset;
+    }
+
+    /**
+     * The position of the current record in the source, from 0.
+     */
+    public long index() {
+        return index;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public byte getByte(int offset) {
+        return buf.get(at(offset, 1));
+    }
+
+    public short getShort(int offset) {
+        return buf.getShort(at(offset, 2));
+    }
+
+    public int getInt(int offset) {
+        return buf.getInt(at(offset, 4));
+    }
+
+    public long getLong(int offset) {
+        return buf.getLong(at(offset, 8));
+    }
+
+    public float getFloat(int offset) {
+        return buf.getFloat(at(offset, 4));
+    }
+
+    public double getDouble(int offset) {
+        return buf.getDouble(at(offset, 8));
+    }
+
+    /**
+     * Copies the raw bytes of the current record.
+     */
+    public byte[] toArray() {
+        byte[] bytes = new byte[size];
+        for (int i = 0; i < size; i++) {
+            bytes[i] = buf.get(base + i);
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,71 @@
+package com.github.wolray.seq;
+
+import java.util.function.Predicate;
+
+/**
+ * A Bloom filter over element hash codes, for membership tests against reference sets too large to
+ * hash in memory. A test never misses an added element, and answers true for other elements at about
+ * the false-positive rate it was sized for (it cannot do better than hash-code collisions). Use it as
+ * a filter alone when approximate is fine, or in front of an exact check, as in
+ * {@code seq.filter(bloom.and(exact::contains))}, to skip most lookups of absent elements.
+ *
+ * @author wolray
+ */
+public class BloomFilter<T> implements Predicate<T> {
+    private final long[] bits;
+    private final long bitSize;
+    private final int hashCount;
+
+    public BloomFilter(long expectedSize, double fpp) {
+        if (fpp <= 0 || fpp >= 1) {
+            throw new IllegalArgumentException("fpp: " + fpp);
+        }
+        long n = Math.max(expectedSize, 1);
+        long m = (long)Math.ceil(-n * Math.log(fpp) / (Math.log(2) * Math.log(2)));
+        bits = new long[(int)Math.min((m + 63) >>> 6, Integer.MAX_VALUE - 8)];
+        bitSize = (long)bits.length << 6;
+        hashCount = Math.max(1, (int)Math.round((double)bitSize / n * Math.log(2)));
+    }
+
+    public static <T> BloomFilter<T> of(Seq<T> seq, long expectedSize, double fpp) {
+        return seq.feed(new BloomFilter<>(expectedSize, fpp), BloomFilter::add);
+    }
+
+    private static long mix(Object t) {
+        long h = t != null ? t.hashCode() : 0;
+        h *= 0x9e3779b97f4a7c15L;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        return h ^ h >>> 33;
+    }
+
+    public void add(T t) {
+        long h = mix(t), h1 = h >>> 32, h2 = h & 0xffffffffL | 1;
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Long.remainderUnsigned(h1 + i * h2, bitSize);
+            bits[(int)(bit >>> 6)] |= 1L << bit;
+        }
+    }
+
+    @Override
+    public boolean test(T t) {
+        long h = mix(t), h1 = h >>> 32, h2 = h & 0xffffffffL | 1;
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Long.remainderUnsigned(h1 + i * h2, bitSize);
+            if ((bits[(int)(bit >>> 6)] & 1L << bit) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public long bitSize() {
+        return bitSize;
+    }
+
+    public int hashCount() {
+        return hashCount;
+    }
+}
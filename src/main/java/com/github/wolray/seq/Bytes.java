@@ -0,0 +1,88 @@
+package com.github.wolray.seq;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Number parsing straight from bytes, shared by the record readers.
+ *
+ * @author wolray
+ */
+final class Bytes {
+    private static final double[] POW10 = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+        1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private Bytes() {}
+
+    static String utf8(byte[] b, int from, int to) {
+        return new String(b, from, to - from, StandardCharsets.UTF_8);
+    }
+
+    static long parseLong(byte[] b, int from, int to) {
+        int k = from;
+        boolean neg = k < to && b[k] == '-';
+        if (k == to || (neg || b[k] == '+') && ++k == to) {
+            throw new NumberFormatException(utf8(b, from, to));
+        }
+        long limit = neg ? Long.MIN_VALUE : -Long.MAX_VALUE;
+        long multMin = limit / 10;
+        long v = 0;
+        for (; k < to; k++) {
+            int d = b[k] - '0';
+            if (d < 0 || d > 9 || v < multMin) {
+                throw new NumberFormatException(utf8(b, from, to));
+            }
+            v *= 10;
+            if (v < limit + d) {
+                throw new NumberFormatException(utf8(b, from, to));
+            }
+            v -= d;
+        }
+        return neg ? v : -v;
+    }
+
+    static int parseInt(byte[] b, int from, int to) {
+        long v = parseLong(b, from, to);
+        if ((int)v != v) {
+            throw new NumberFormatException(utf8(b, from, to));
+        }
+        return (int)v;
+    }
+
+    /**
+     * Plain decimals of up to 15 digits are parsed in place, exactly; anything else, such as exponents,
+     * goes through {@link Double#parseDouble}.
+     */
+    static double parseDouble(byte[] b, int from, int to) {
+        int k = from;
+        boolean neg = k < to && b[k] == '-';
+        if (neg || k < to && b[k] == '+') {
+            k++;
+        }
+        long m = 0;
+        int digits = 0, scale = 0;
+        boolean dot = false;
+        for (; k < to; k++) {
+            byte c = b[k];
+            if (c >= '0' && c <= '9') {
+                if (++digits > 15) {
+                    return Double.parseDouble(utf8(b, from, to));
+                }
+                m = m * 10 + (c - '0');
+                if (dot) {
+                    scale++;
+                }
+            } else if (c == '.' && !dot) {
+                dot = true;
+            } else {
+                return Double.parseDouble(utf8(b, from, to));
+            }
+        }
+        if (digits == 0) {
+            throw new NumberFormatException(utf8(b, from, to));
+        }
+        double d = m / POW10[scale];
+        return neg ? -d : d;
+    }
+}
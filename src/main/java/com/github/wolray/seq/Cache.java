@@ -11,4 +11,21 @@ public interface Cache<T> {
     Seq<T> read();
 
     void write(List<T> ts);
+
+    /**
+     * Removes what {@link #write} stored, if it can; does nothing by default.
+     */
+    default void delete() {}
+
+    default Seq<T> load(Seq<T> seq, int batchSize) {
+        if (exists()) {
+            return read();
+        } else {
+            BatchList<T> ts = seq.toBatchList(batchSize);
+            if (ts.isNotEmpty()) {
+                write(ts);
+            }
+            return ts;
+        }
+    }
 }
@@ -0,0 +1,208 @@
+package com.github.wolray.seq;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+
+/**
+ * Named materialized seqs under a global weight budget, evicted in LRU order.
+ * Weights default to the element count, pass a weigher to budget by bytes instead.
+ * Concurrent requests for a key being loaded wait for the single running load.
+ * With {@link #spillTo} set, evicted entries are written to a {@link Cache} and served from it later.
+ *
+ * @author wolray
+ */
+public class CacheRegistry<K, T> {
+    private final long budget;
+    private final ToLongFunction<Seq<T>> weigher;
+    private final LinkedHashMap<K, Entry<T>> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final ConcurrentHashMap<K, CompletableFuture<Seq<T>>> loading = new ConcurrentHashMap<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final Set<K> spilled = ConcurrentHashMap.newKeySet();
+    private Function<K, Cache<T>> spill;
+    private long weight;
+
+    public CacheRegistry(long budget) {
+        this(budget, Seq::sizeOrDefault);
+    }
+
+    public CacheRegistry(long budget, ToLongFunction<Seq<T>> weigher) {
+        this.budget = budget;
+        this.weigher = weigher;
+    }
+
+    public CacheRegistry<K, T> spillTo(Function<K, Cache<T>> spill) {
+        this.spill = spill;
+        return this;
+    }
+
+    public Seq<T> get(K key, Supplier<Seq<T>> loader) {
+        Seq<T> seq = lookup(key);
+        if (seq != null) {
+            return seq;
+        }
+        CompletableFuture<Seq<T>> future = new CompletableFuture<>();
+        CompletableFuture<Seq<T>> running = loading.putIfAbsent(key, future);
+        if (running != null) {
+            hits.incrementAndGet();
+            try {
+                return running.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException)e.getCause();
+                }
+                throw e;
+            }
+        }
+        try {
+            seq = lookup(key);
+            if (seq == null) {
+                seq = load(key, loader);
+            }
+            future.complete(seq);
+            return seq;
+        } catch (RuntimeException | Error e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            loading.remove(key, future);
+        }
+    }
+
+    private Seq<T> load(K key, Supplier<Seq<T>> loader) {
+        Seq<T> seq = null;
+        if (spill != null) {
+            Cache<T> cache = spill.apply(key);
+            if (cache.exists()) {
+                spilled.add(key);
+                hits.incrementAndGet();
+                seq = cache.read();
+            }
+        }
+        if (seq == null) {
+            misses.incrementAndGet();
+            seq = loader.get().cache();
+        }
+        put(key, seq);
+        return seq;
+    }
+
+    private synchronized Seq<T> lookup(K key) {
+        Entry<T> entry = entries.get(key);
+        if (entry != null) {
+            hits.incrementAndGet();
+            return entry.seq;
+        }
+        return null;
+    }
+
+    private void put(K key, Seq<T> seq) {
+        List<Map.Entry<K, Entry<T>>> victims = new ArrayList<>();
+        synchronized (this) {
+            Entry<T> entry = new Entry<>(seq, weigher.applyAsLong(seq));
+            Entry<T> old = entries.put(key, entry);
+            if (old != null) {
+                weight -= old.weight;
+            }
+            weight += entry.weight;
+            Iterator<Map.Entry<K, Entry<T>>> it = entries.entrySet().iterator();
+            while (weight > budget && it.hasNext()) {
+                Map.Entry<K, Entry<T>> e = it.next();
+                if (e.getValue() != entry) {
+                    it.remove();
+                    weight -= e.getValue().weight;
+                    victims.add(e);
+                }
+            }
+        }
+        evictions.addAndGet(victims.size());
+        if (spill != null) {
+            for (Map.Entry<K, Entry<T>> e : victims) {
+                Cache<T> cache = spill.apply(e.getKey());
+                spilled.add(e.getKey());
+                if (!cache.exists()) {
+                    Seq<T> victim = e.getValue().seq;
+                    if (victim instanceof List) {
+                        @SuppressWarnings("unchecked")
+                        List<T> ts = (List<T>)victim;
+                        cache.write(ts);
+                    } else {
+                        cache.write(victim.toBatchList());
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Drops the entry of {@code key}, and its spilled copy if any, so that the next get loads it again.
+     */
+    public void invalidate(K key) {
+        synchronized (this) {
+            Entry<T> entry = entries.remove(key);
+            if (entry != null) {
+                weight -= entry.weight;
+            }
+        }
+        if (spill != null && spilled.remove(key)) {
+            spill.apply(key).delete();
+        }
+    }
+
+    public void clear() {
+        synchronized (this) {
+            entries.clear();
+            weight = 0;
+        }
+        if (spill != null) {
+            for (K key : spilled) {
+                if (spilled.remove(key)) {
+                    spill.apply(key).delete();
+                }
+            }
+        }
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long weight() {
+        return weight;
+    }
+
+    public long hits() {
+        return hits.get();
+    }
+
+    public long misses() {
+        return misses.get();
+    }
+
+    public long evictions() {
+        return evictions.get();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("CacheRegistry(size=%d, weight=%d/%d, hits=%d, misses=%d, evictions=%d)",
+            size(), weight(), budget, hits(), misses(), evictions());
+    }
+
+    private static class Entry<T> {
+        final Seq<T> seq;
+        final long weight;
+
+        Entry(Seq<T> seq, long weight) {
+            this.seq = seq;
+            this.weight = weight;
+        }
+    }
+}
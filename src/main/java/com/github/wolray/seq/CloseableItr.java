@@ -0,0 +1,28 @@
+package com.github.wolray.seq;
+
+import java.util.Iterator;
+
+/**
+ * An {@link Iterator} to close when abandoned early, such as one backed by a helper thread.
+ * Closing stops further elements and releases what the iterator holds; closing twice is harmless.
+ *
+ * @author wolray
+ */
+public interface CloseableItr<T> extends Iterator<T>, AutoCloseable {
+    static <T> CloseableItr<T> of(Iterator<T> iterator) {
+        return new CloseableItr<T>() {
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public T next() {
+                return iterator.next();
+            }
+        };
+    }
+
+    @Override
+    default void close() {}
+}
@@ -0,0 +1,242 @@
+package com.github.wolray.seq;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Binary encoding of elements into a {@link ByteBuffer}. {@link #sizeOf} must return
+ * exactly the number of bytes {@link #write} puts, and a codec with a positive
+ * {@link #fixedSize} must write that many bytes for every element.
+ *
+ * @author wolray
+ */
+public interface Codec<T> {
+    Codec<Boolean> BOOLEAN = fixed(1, (b, t) -> b.put((byte)(t ? 1 : 0)), b -> b.get() != 0);
+    Codec<Byte> BYTE = fixed(1, ByteBuffer::put, ByteBuffer::get);
+    Codec<Short> SHORT = fixed(2, ByteBuffer::putShort, ByteBuffer::getShort);
+    Codec<Character> CHAR = fixed(2, ByteBuffer::putChar, ByteBuffer::getChar);
+    Codec<Integer> INT = fixed(4, ByteBuffer::putInt, ByteBuffer::getInt);
+    Codec<Long> LONG = fixed(8, ByteBuffer::putLong, ByteBuffer::getLong);
+    Codec<Float> FLOAT = fixed(4, ByteBuffer::putFloat, ByteBuffer::getFloat);
+    Codec<Double> DOUBLE = fixed(8, ByteBuffer::putDouble, ByteBuffer::getDouble);
+    Codec<String> STRING = new Codec<String>() {
+        @Override
+        public int sizeOf(String s) {
+            return s == null ? 4 : 4 + utf8Length(s);
+        }
+
+        @Override
+        public void write(ByteBuffer buf, String s) {
+            if (s == null) {
+                buf.putInt(-1);
+            } else {
+                buf.putInt(utf8Length(s));
+                putUtf8(buf, s);
+            }
+        }
+
+        @Override
+        public String read(ByteBuffer buf) {
+            int len = buf.getInt();
+            if (len < 0) {
+                return null;
+            }
+            if (buf.hasArray()) {
+                int pos = buf.position();
+                buf.position(pos + len);
+                return new String(buf.array(), buf.arrayOffset() + pos, len, StandardCharsets.UTF_8);
+            }
+            byte[] bytes = new byte[len];
+            buf.get(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    };
+
+    static <T> Codec<T> fixed(int size, BiConsumer<ByteBuffer, T> writer, Function<ByteBuffer, T> reader) {
+        return new Codec<T>() {
+            @Override
+            public int fixedSize() {
+                return size;
+            }
+
+            @Override
+            public int sizeOf(T t) {
+                return size;
+            }
+
+            @Override
+            public void write(ByteBuffer buf, T t) {
+                writer.accept(buf, t);
+            }
+
+            @Override
+            public T read(ByteBuffer buf) {
+                return reader.apply(buf);
+            }
+        };
+    }
+
+    static <A, B> Codec<Pair<A, B>> pair(Codec<A> a, Codec<B> b) {
+        int fixedSize = a.fixedSize() > 0 && b.fixedSize() > 0 ? a.fixedSize() + b.fixedSize() : -1;
+        return new Codec<Pair<A, B>>() {
+            @Override
+            public int fixedSize() {
+                return fixedSize;
+            }
+
+            @Override
+            public int sizeOf(Pair<A, B> p) {
+                return a.sizeOf(p.first) + b.sizeOf(p.second);
+            }
+
+            @Override
+            public void write(ByteBuffer buf, Pair<A, B> p) {
+                a.write(buf, p.first);
+                b.write(buf, p.second);
+            }
+
+            @Override
+            public Pair<A, B> read(ByteBuffer buf) {
+                A first = a.read(buf);
+                return new Pair<>(first, b.read(buf));
+            }
+        };
+    }
+
+    static <T, A, B> Codec<Triple<T, A, B>> triple(Codec<T> t, Codec<A> a, Codec<B> b) {
+        int fixedSize = t.fixedSize() > 0 && a.fixedSize() > 0 && b.fixedSize() > 0
+            ? t.fixedSize() + a.fixedSize() + b.fixedSize() : -1;
+        return new Codec<Triple<T, A, B>>() {
+            @Override
+            public int fixedSize() {
+                return fixedSize;
+            }
+
+            @Override
+            public int sizeOf(Triple<T, A, B> p) {
+                return t.sizeOf(p.first) + a.sizeOf(p.second) + b.sizeOf(p.third);
+            }
+
+            @Override
+            public void write(ByteBuffer buf, Triple<T, A, B> p) {
+                t.write(buf, p.first);
+                a.write(buf, p.second);
+                b.write(buf, p.third);
+            }
+
+            @Override
+            public Triple<T, A, B> read(ByteBuffer buf) {
+                T first = t.read(buf);
+                A second = a.read(buf);
+                return new Triple<>(first, second, b.read(buf));
+            }
+        };
+    }
+
+    static <T> Codec<IntPair<T>> intPair(Codec<T> codec) {
+        int fixedSize = codec.fixedSize() > 0 ? 4 + codec.fixedSize() : -1;
+        return new Codec<IntPair<T>>() {
+            @Override
+            public int fixedSize() {
+                return fixedSize;
+            }
+
+            @Override
+            public int sizeOf(IntPair<T> p) {
+                return 4 + codec.sizeOf(p.second);
+            }
+
+            @Override
+            public void write(ByteBuffer buf, IntPair<T> p) {
+                buf.putInt(p.first);
+                codec.write(buf, p.second);
+            }
+
+            @Override
+            public IntPair<T> read(ByteBuffer buf) {
+                int first = buf.getInt();
+                return new IntPair<>(first, codec.read(buf));
+            }
+        };
+    }
+
+    static <T> Codec<LongPair<T>> longPair(Codec<T> codec) {
+        int fixedSize = codec.fixedSize() > 0 ? 8 + codec.fixedSize() : -1;
+        return new Codec<LongPair<T>>() {
+            @Override
+            public int fixedSize() {
+                return fixedSize;
+            }
+
+            @Override
+            public int sizeOf(LongPair<T> p) {
+                return 8 + codec.sizeOf(p.second);
+            }
+
+            @Override
+            public void write(ByteBuffer buf, LongPair<T> p) {
+                buf.putLong(p.first);
+                codec.write(buf, p.second);
+            }
+
+            @Override
+            public LongPair<T> read(ByteBuffer buf) {
+                long first = buf.getLong();
+                return new LongPair<>(first, codec.read(buf));
+            }
+        };
+    }
+
+    static int utf8Length(CharSequence cs) {
+        int n = cs.length(), len = n;
+        for (int i = 0; i < n; i++) {
+            char c = cs.charAt(i);
+            if (c >= 0x800) {
+                if (Character.isHighSurrogate(c) && i + 1 < n && Character.isLowSurrogate(cs.charAt(i + 1))) {
+                    len += 2;
+                    i++;
+                } else {
+                    len += 2;
+                }
+            } else if (c >= 0x80) {
+                len++;
+            }
+        }
+        return len;
+    }
+
+    static void putUtf8(ByteBuffer buf, CharSequence cs) {
+        int n = cs.length();
+        for (int i = 0; i < n; i++) {
+            char c = cs.charAt(i);
+            if (c < 0x80) {
+                buf.put((byte)c);
+            } else if (c < 0x800) {
+                buf.put((byte)(0xc0 | c >> 6));
+                buf.put((byte)(0x80 | c & 0x3f));
+            } else if (Character.isHighSurrogate(c) && i + 1 < n && Character.isLowSurrogate(cs.charAt(i + 1))) {
+                int cp = Character.toCodePoint(c, cs.charAt(++i));
+                buf.put((byte)(0xf0 | cp >> 18));
+                buf.put((byte)(0x80 | cp >> 12 & 0x3f));
+                buf.put((byte)(0x80 | cp >> 6 & 0x3f));
+                buf.put((byte)(0x80 | cp & 0x3f));
+            } else {
+                buf.put((byte)(0xe0 | c >> 12));
+                buf.put((byte)(0x80 | c >> 6 & 0x3f));
+                buf.put((byte)(0x80 | c & 0x3f));
+            }
+        }
+    }
+
+    default int fixedSize() {
+        return -1;
+    }
+
+    int sizeOf(T t);
+
+    void write(ByteBuffer buf, T t);
+
+    T read(ByteBuffer buf);
+}
@@ -0,0 +1,119 @@
+package com.github.wolray.seq;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.*;
+
+/**
+ * @author wolray
+ */
+public enum Compression {
+    NONE,
+    GZIP,
+    DEFLATE,
+    BGZF;
+
+    public static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * Opens a file, decompressing it if it is gzip (by magic bytes) or deflate (by a {@code .zz},
+     * {@code .zlib} or {@code .deflate} extension). Blocked gzip is inflated in parallel.
+     */
+    public static InputStream open(Path path) throws IOException {
+        FileChannel fc = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            InputStream is = decompress(path, fc);
+            return is != null ? is : Channels.newInputStream(fc);
+        } catch (IOException | RuntimeException e) {
+            fc.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Same as {@link #open(Path)}, returning the {@link FileChannel} itself for an uncompressed file.
+     */
+    public static ReadableByteChannel openChannel(Path path) throws IOException {
+        FileChannel fc = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            InputStream is = decompress(path, fc);
+            return is != null ? Channels.newChannel(is) : fc;
+        } catch (IOException | RuntimeException e) {
+            fc.close();
+            throw e;
+        }
+    }
+
+    private static InputStream decompress(Path path, FileChannel fc) throws IOException {
+        ByteBuffer head = ByteBuffer.allocate(Bgzf.HEADER_SIZE);
+        while (head.hasRemaining() && fc.read(head, head.position()) > 0) {}
+        byte[] b = head.array();
+        int n = head.position();
+        Compression compression;
+        if (n >= 2 && (b[0] & 0xff) == 0x1f && (b[1] & 0xff) == 0x8b) {
+            compression = Bgzf.isBgzf(b, n) ? BGZF : GZIP;
+        } else {
+            String name = path.getFileName().toString();
+            boolean deflate = name.endsWith(".zz") || name.endsWith(".zlib") || name.endsWith(".deflate");
+            compression = deflate ? DEFLATE : NONE;
+        }
+        if (compression == NONE) {
+            return null;
+        }
+        return compression.wrap(new BufferedInputStream(Channels.newInputStream(fc), BUFFER_SIZE));
+    }
+
+    public OutputStream wrap(OutputStream os) throws IOException {
+        switch (this) {
+            case GZIP:
+                return new GZIPOutputStream(os, BUFFER_SIZE);
+            case DEFLATE:
+                Deflater deflater = new Deflater();
+                return new DeflaterOutputStream(os, deflater, BUFFER_SIZE) {
+                    @Override
+                    public void close() throws IOException {
+                        try {
+                            super.close();
+                        } finally {
+                            deflater.end();
+                        }
+                    }
+                };
+            case BGZF:
+                return new Bgzf.Output(os);
+            default:
+                return os;
+        }
+    }
+
+    public InputStream wrap(InputStream is) throws IOException {
+        switch (this) {
+            case GZIP:
+                return new GZIPInputStream(is, BUFFER_SIZE);
+            case DEFLATE:
+                Inflater inflater = new Inflater();
+                return new InflaterInputStream(is, inflater, BUFFER_SIZE) {
+                    @Override
+                    public void close() throws IOException {
+                        try {
+                            super.close();
+                        } finally {
+                            inflater.end();
+                        }
+                    }
+                };
+            case BGZF:
+                return new Bgzf.Input(is);
+            default:
+                return is;
+        }
+    }
+}
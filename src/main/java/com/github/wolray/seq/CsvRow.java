@@ -0,0 +1,270 @@
+package com.github.wolray.seq;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * A cursor over the records of a delimited file, reused for every record. Fields stay as byte ranges
+ * of the read buffer until asked for: {@link #getInt}, {@link #getLong} and {@link #getDouble} parse
+ * the bytes in place, only {@link #getString} allocates. With a projection, field {@code i} is the
+ * {@code i}-th selected column and the other columns are only skipped over.
+ *
+ * @author wolray
+ */
+public class CsvRow {
+    private final SeqReader.Csv csv;
+    private byte[] buf;
+    private ByteBuffer wrapped;
+    private int limit;
+    private int[] slotOf;
+    private int[] starts;
+    private int[] ends;
+    private boolean[] escaped;
+    private int size;
+    private boolean blank;
+
+    CsvRow(SeqReader.Csv csv) {
+        this.csv = csv;
+        buf = new byte[csv.bufferSize];
+        wrapped = ByteBuffer.wrap(buf);
+        if (csv.columns != null) {
+            project(csv.columns);
+        } else {
+            starts = new int[16];
+            ends = new int[16];
+            escaped = new boolean[16];
+        }
+    }
+
+    private void project(int[] columns) {
+        slotOf = new int[Arrays.stream(columns).max().orElse(-1) + 1];
+        Arrays.fill(slotOf, -1);
+        for (int k = 0; k < columns.length; k++) {
+            if (slotOf[columns[k]] >= 0) {
+                throw new IllegalArgumentException("duplicate column: " + columns[k]);
+            }
+            slotOf[columns[k]] = k;
+        }
+        size = columns.length;
+        starts = new int[size];
+        ends = new int[size];
+        escaped = new boolean[size];
+    }
+
+    void scan(ReadableByteChannel ch, Consumer<CsvRow> consumer) throws IOException {
+        boolean header = csv.header, eof = false;
+        int p = 0;
+        while (true) {
+            int next = parse(p, eof);
+            if (next >= 0) {
+                p = next;
+                if (blank) {
+                    continue;
+                }
+                if (header) {
+                    header = false;
+                    if (csv.names != null) {
+                        project(resolve(csv.names));
+                    }
+                } else {
+                    consumer.accept(this);
+                }
+                continue;
+            }
+            if (eof) {
+                return;
+            }
+            if (p > 0) {
+                System.arraycopy(buf, p, buf, 0, limit - p);
+                limit -= p;
+                p = 0;
+            } else if (limit == buf.length) {
+                buf = Arrays.copyOf(buf, buf.length * 2);
+                wrapped = ByteBuffer.wrap(buf);
+            }
+            wrapped.limit(buf.length).position(limit);
+            int n = ch.read(wrapped);
+            if (n < 0) {
+                eof = true;
+            } else {
+                limit += n;
+            }
+        }
+    }
+
+    private int[] resolve(String[] names) {
+        int[] columns = new int[names.length];
+        for (int k = 0; k < names.length; k++) {
+            int col = -1;
+            for (int j = 0; j < size && col < 0; j++) {
+                if (names[k].equals(getString(j))) {
+                    col = j;
+                }
+            }
+            if (col < 0) {
+                throw new IllegalArgumentException("no such column: " + names[k]);
+            }
+            columns[k] = col;
+        }
+        return columns;
+    }
+
+    /**
+     * Parses the record at {@code p} and returns where the next one starts, or -1 if the buffer ends
+     * before the record does and more input may follow.
+     */
+    private int parse(int p, boolean eof) {
+        byte[] b = buf;
+        int lim = limit;
+        if (p >= lim) {
+            return -1;
+        }
+        byte delimiter = csv.delimiter, quote = csv.quote;
+        if (slotOf != null) {
+            Arrays.fill(starts, -1);
+        }
+        blank = false;
+        int i = p;
+        for (int col = 0; ; col++) {
+            int start, end;
+            boolean quoted = i < lim && b[i] == quote, esc = false;
+            if (quoted) {
+                start = ++i;
+                while (true) {
+                    if (i >= lim) {
+                        if (!eof) {
+                            return -1;
+                        }
+                        end = i;
+                        break;
+                    }
+                    if (b[i] == quote) {
+                        if (i + 1 >= lim && !eof) {
+                            return -1;
+                        }
+                        if (i + 1 < lim && b[i + 1] == quote) {
+                            esc = true;
+                            i += 2;
+                            continue;
+                        }
+                        end = i++;
+                        break;
+                    }
+                    i++;
+                }
+                while (i < lim && b[i] != delimiter && b[i] != '\n') {
+                    i++;
+                }
+            } else {
+                start = i;
+                while (i < lim && b[i] != delimiter && b[i] != '\n') {
+                    i++;
+                }
+                end = i;
+            }
+            if (i >= lim && !eof) {
+                return -1;
+            }
+            boolean last = i >= lim || b[i] == '\n';
+            if (last && !quoted && end > start && b[end - 1] == '\r') {
+                end--;
+            }
+            if (last && col == 0) {
+                blank = !quoted && end == start;
+            }
+            store(col, start, end, esc);
+            if (last) {
+                if (slotOf == null) {
+                    size = col + 1;
+                }
+                return i < lim ? i + 1 : lim;
+            }
+            i++;
+        }
+    }
+
+    private void store(int col, int start, int end, boolean esc) {
+        int slot = col;
+        if (slotOf != null) {
+            slot = col < slotOf.length ? slotOf[col] : -1;
+            if (slot < 0) {
+                return;
+            }
+        } else if (col == starts.length) {
+            starts = Arrays.copyOf(starts, col * 2);
+            ends = Arrays.copyOf(ends, col * 2);
+            escaped = Arrays.copyOf(escaped, col * 2);
+        }
+        starts[slot] = start;
+        ends[slot] = end;
+        escaped[slot] = esc;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Whether field {@code i} is empty, or missing from a short record.
+     */
+    public boolean isEmpty(int i) {
+        check(i);
+        return starts[i] < 0 || starts[i] == ends[i];
+    }
+
+    public String getString(int i) {
+        check(i);
+        int from = starts[i];
+        if (from < 0) {
+            return "";
+        }
+        String s = new String(buf, from, ends[i] - from, csv.charset);
+        if (escaped[i]) {
+            String q = String.valueOf((char)csv.quote);
+            s = s.replace(q + q, q);
+        }
+        return s;
+    }
+
+    public int getInt(int i) {
+        return Bytes.parseInt(buf, numberStart(i), ends[i]);
+    }
+
+    public long getLong(int i) {
+        return Bytes.parseLong(buf, numberStart(i), ends[i]);
+    }
+
+    public double getDouble(int i) {
+        return Bytes.parseDouble(buf, numberStart(i), ends[i]);
+    }
+
+    private int numberStart(int i) {
+        check(i);
+        if (starts[i] < 0 || starts[i] == ends[i]) {
+            throw new NumberFormatException("empty field " + i);
+        }
+        return starts[i];
+    }
+
+    private void check(int i) {
+        if (i < 0 || i >= size) {
+            throw new IndexOutOfBoundsException(String.format("%d, %d", i, size));
+        }
+    }
+
+    public String[] toArray() {
+        String[] res = new String[size];
+        for (int i = 0; i < size; i++) {
+            res[i] = getString(i);
+        }
+        return res;
+    }
+
+    @Override
+    public String toString() {
+        return String.join(String.valueOf((char)csv.delimiter), toArray());
+    }
+}
@@ -0,0 +1,151 @@
+package com.github.wolray.seq;
+
+import java.util.Arrays;
+import java.util.function.*;
+
+/**
+ * @author wolray
+ */
+public interface DoubleSeq extends Seq0<DoubleConsumer> {
+    DoubleSeq empty = c -> {};
+    DoubleConsumer nothing = t -> {};
+
+    static DoubleSeq of(double... ts) {
+        return c -> {
+            for (double t : ts) {
+                c.accept(t);
+            }
+        };
+    }
+
+    default boolean all(DoublePredicate predicate) {
+        return any(false, predicate.negate());
+    }
+
+    default boolean any(boolean ifFound, DoublePredicate predicate) {
+        return find(!ifFound, predicate, t -> ifFound);
+    }
+
+    default boolean any(DoublePredicate predicate) {
+        return any(true, predicate);
+    }
+
+    default double average() {
+        double[] a = new double[]{0, 0};
+        supply(t -> {
+            a[0] += t;
+            a[1] += 1;
+        });
+        return a[1] != 0 ? a[0] / a[1] : 0;
+    }
+
+    default Seq<Double> boxed() {
+        return c -> supply(c::accept);
+    }
+
+    default int count() {
+        int[] a = new int[]{0};
+        supply(t -> a[0]++);
+        return a[0];
+    }
+
+    default int count(DoublePredicate predicate) {
+        int[] a = new int[]{0};
+        supply(t -> {
+            if (predicate.test(t)) {
+                a[0]++;
+            }
+        });
+        return a[0];
+    }
+
+    default DoubleSeq drop(int n) {
+        return n <= 0 ? this : c -> {
+            int[] i = new int[]{0};
+            supply(t -> {
+                if (i[0] < n) {
+                    i[0]++;
+                } else {
+                    c.accept(t);
+                }
+            });
+        };
+    }
+
+    default DoubleSeq filter(DoublePredicate predicate) {
+        return c -> supply(t -> {
+            if (predicate.test(t)) {
+                c.accept(t);
+            }
+        });
+    }
+
+    default <E> E find(E ifNotFound, DoublePredicate predicate, DoubleFunction<E> function) {
+        Mutable<E> m = new Mutable<>(ifNotFound);
+        tillStop(t -> {
+            if (predicate.test(t)) {
+                m.it = function.apply(t);
+                stop();
+            }
+        });
+        return m.it;
+    }
+
+    default Double first() {
+        return find(null, t -> true, t -> t);
+    }
+
+    default double fold(double init, DoubleBinaryOperator function) {
+        double[] a = new double[]{init};
+        tillStop(t -> a[0] = function.applyAsDouble(a[0], t));
+        return a[0];
+    }
+
+    default DoubleSeq map(DoubleUnaryOperator function) {
+        return c -> supply(t -> c.accept(function.applyAsDouble(t)));
+    }
+
+    default <E> Seq<E> mapToObj(DoubleFunction<E> function) {
+        return c -> supply(t -> c.accept(function.apply(t)));
+    }
+
+    default Double max() {
+        return mapToObj(t -> (Double)t).fold(null, (f, t) -> f == null || f < t ? t : f);
+    }
+
+    default Double min() {
+        return mapToObj(t -> (Double)t).fold(null, (f, t) -> f == null || f > t ? t : f);
+    }
+
+    default DoubleSeq onEach(DoubleConsumer consumer) {
+        return c -> supply(consumer.andThen(c));
+    }
+
+    default double sum() {
+        return fold(0, Double::sum);
+    }
+
+    default DoubleSeq take(int n) {
+        return n <= 0 ? empty : c -> {
+            int[] i = new int[]{0};
+            tillStop(t -> {
+                c.accept(t);
+                if (++i[0] >= n) {
+                    stop();
+                }
+            });
+        };
+    }
+
+    default double[] toArray() {
+        double[][] a = new double[][]{new double[10]};
+        int[] n = new int[]{0};
+        supply(t -> {
+            if (n[0] == a[0].length) {
+                a[0] = Arrays.copyOf(a[0], n[0] * 2);
+            }
+            a[0][n[0]++] = t;
+        });
+        return Arrays.copyOf(a[0], n[0]);
+    }
+}
@@ -0,0 +1,343 @@
+package com.github.wolray.seq;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.*;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * A {@link Cache} stored in one binary file. The file starts with a raw header of
+ * magic, compression, fixed record size and record count, followed by the (possibly compressed)
+ * records: varint length-prefixed for variable-width codecs, back to back for fixed-width ones.
+ * <p>
+ * {@link #load} writes the file through while the first traversal is streaming, into a temp file
+ * which is only moved into place once the traversal has completed.
+ * Later traversals of the same loaded seq share one read of the file, mapped once.
+ *
+ * @author wolray
+ */
+public class FileCache<T> implements Cache<T> {
+    static final int MAGIC = 0x53455131;
+    static final int HEADER_SIZE = 17;
+    static final int BUFFER_SIZE = 1 << 16;
+    public final Path path;
+    public final Codec<T> codec;
+    private Compression compression = Compression.NONE;
+
+    public FileCache(String file, Codec<T> codec) {
+        this(Paths.get(file), codec);
+    }
+
+    public FileCache(Path path, Codec<T> codec) {
+        this.path = path;
+        this.codec = codec;
+    }
+
+    public FileCache<T> compress(Compression compression) {
+        this.compression = compression;
+        return this;
+    }
+
+    @Override
+    public boolean exists() {
+        return Files.isRegularFile(path);
+    }
+
+    @Override
+    public Seq<T> read() {
+        try (FileChannel fc = FileChannel.open(path, StandardOpenOption.READ)) {
+            Header header = Header.read(fc, path, codec);
+            if (header.compression == Compression.NONE) {
+                return MappedList.map(fc, HEADER_SIZE, header.fixedSize, header.count, codec);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        return this::scan;
+    }
+
+    @Override
+    public void write(List<T> ts) {
+        try (Writer<T> writer = writer()) {
+            ts.forEach(writer::add);
+            writer.commit();
+        }
+    }
+
+    @Override
+    public Seq<T> load(Seq<T> seq, int batchSize) {
+        Mutable<Seq<T>> loaded = new Mutable<>(null);
+        return c -> {
+            if (exists()) {
+                if (loaded.it == null) {
+                    loaded.it = read();
+                }
+                loaded.it.supply(c);
+                return;
+            }
+            loaded.it = null;
+            boolean[] stopped = new boolean[1];
+            try (Writer<T> writer = writer()) {
+                seq.supply(t -> {
+                    writer.add(t);
+                    try {
+                        c.accept(t);
+                    } catch (Seq0.StopException e) {
+                        stopped[0] = true;
+                        throw e;
+                    }
+                });
+                if (!stopped[0]) {
+                    writer.commit();
+                }
+            }
+        };
+    }
+
+    @Override
+    public void delete() {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    public Writer<T> writer() {
+        try {
+            return new Writer<>(path, codec, compression);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    void scan(Consumer<T> consumer) {
+        try (FileChannel fc = FileChannel.open(path, StandardOpenOption.READ)) {
+            Header header = Header.read(fc, path, codec);
+            ReadableByteChannel ch = header.compression == Compression.NONE ? fc
+                : Channels.newChannel(header.compression.wrap(Channels.newInputStream(fc)));
+            try (Input in = new Input(ch, path)) {
+                in.records(header.fixedSize, codec, consumer);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    static class Header {
+        Compression compression;
+        int fixedSize;
+        long count;
+
+        static Header read(FileChannel fc, Path path, Codec<?> codec) throws IOException {
+            ByteBuffer buf = ByteBuffer.allocate(HEADER_SIZE);
+            while (buf.hasRemaining()) {
+                if (fc.read(buf) < 0) {
+                    throw new EOFException(String.valueOf(path));
+                }
+            }
+            buf.flip();
+            if (buf.getInt() != MAGIC) {
+                throw new IllegalStateException("not a seq cache file: " + path);
+            }
+            Header header = new Header();
+            header.compression = Compression.values()[buf.get()];
+            header.fixedSize = buf.getInt();
+            header.count = buf.getLong();
+            if (header.fixedSize != Math.max(codec.fixedSize(), 0)) {
+                throw new IllegalStateException("codec record size mismatch: " + path);
+            }
+            return header;
+        }
+
+        static ByteBuffer write(Compression compression, int fixedSize, long count) {
+            ByteBuffer buf = ByteBuffer.allocate(HEADER_SIZE);
+            buf.putInt(MAGIC).put((byte)compression.ordinal()).putInt(Math.max(fixedSize, 0)).putLong(count);
+            buf.flip();
+            return buf;
+        }
+    }
+
+    static class Input implements AutoCloseable {
+        final ReadableByteChannel ch;
+        final Path path;
+        ByteBuffer buf = ByteBuffer.allocate(BUFFER_SIZE);
+
+        Input(ReadableByteChannel ch, Path path) {
+            this.ch = ch;
+            this.path = path;
+            buf.flip();
+        }
+
+        boolean fill(int n) throws IOException {
+            if (buf.remaining() >= n) {
+                return true;
+            }
+            if (buf.capacity() < n) {
+                buf = ByteBuffer.allocate(n).put(buf);
+            } else {
+                buf.compact();
+            }
+            while (buf.position() < n) {
+                if (ch.read(buf) < 0) {
+                    buf.flip();
+                    if (!buf.hasRemaining()) {
+                        return false;
+                    }
+                    throw new EOFException(String.valueOf(path));
+                }
+            }
+            buf.flip();
+            return true;
+        }
+
+        <T> void records(int fixedSize, Codec<T> codec, Consumer<T> consumer) throws IOException {
+            while (fill(fixedSize > 0 ? fixedSize : 1)) {
+                int len = fixedSize > 0 ? fixedSize : varint();
+                if (!fill(len)) {
+                    throw new EOFException(String.valueOf(path));
+                }
+                int start = buf.position();
+                T t = codec.read(buf);
+                buf.position(start + len);
+                consumer.accept(t);
+            }
+        }
+
+        int varint() throws IOException {
+            int res = 0;
+            for (int shift = 0; ; shift += 7) {
+                if (!fill(1)) {
+                    throw new EOFException(String.valueOf(path));
+                }
+                byte b = buf.get();
+                res |= (b & 0x7f) << shift;
+                if (b >= 0) {
+                    return res;
+                }
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            ch.close();
+        }
+    }
+
+    public static class Writer<T> implements AutoCloseable {
+        private final Path path;
+        private final Codec<T> codec;
+        private final Compression compression;
+        private final int fixedSize;
+        private final Path tmp;
+        private final FileChannel fc;
+        private final OutputStream os;
+        private final WritableByteChannel out;
+        private ByteBuffer buf = ByteBuffer.allocate(BUFFER_SIZE);
+        private long count;
+        private boolean closed;
+
+        Writer(Path path, Codec<T> codec, Compression compression) throws IOException {
+            this.path = path;
+            this.codec = codec;
+            this.compression = compression;
+            fixedSize = codec.fixedSize();
+            Path dir = path.toAbsolutePath().getParent();
+            Files.createDirectories(dir);
+            tmp = Files.createTempFile(dir, path.getFileName().toString(), ".tmp");
+            fc = FileChannel.open(tmp, StandardOpenOption.WRITE);
+            fc.write(Header.write(compression, fixedSize, 0));
+            if (compression == Compression.NONE) {
+                os = null;
+                out = fc;
+            } else {
+                os = compression.wrap(Channels.newOutputStream(fc));
+                out = Channels.newChannel(os);
+            }
+        }
+
+        public void add(T t) {
+            int n = codec.sizeOf(t);
+            int need = fixedSize > 0 ? n : n + 5;
+            try {
+                if (buf.remaining() < need) {
+                    flush();
+                    if (buf.capacity() < need) {
+                        buf = ByteBuffer.allocate(need);
+                    }
+                }
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+            if (fixedSize <= 0) {
+                for (int v = n; ; v >>>= 7) {
+                    if ((v & ~0x7f) == 0) {
+                        buf.put((byte)v);
+                        break;
+                    }
+                    buf.put((byte)(v & 0x7f | 0x80));
+                }
+            }
+            int start = buf.position();
+            codec.write(buf, t);
+            if (buf.position() - start != n) {
+                throw new IllegalStateException(String.format("codec wrote %d bytes, sizeOf %d", buf.position() - start, n));
+            }
+            count++;
+        }
+
+        private void flush() throws IOException {
+            buf.flip();
+            while (buf.hasRemaining()) {
+                out.write(buf);
+            }
+            buf.clear();
+        }
+
+        public void commit() {
+            try {
+                flush();
+                if (os instanceof DeflaterOutputStream) {
+                    ((DeflaterOutputStream)os).finish();
+                }
+                if (os != null) {
+                    os.flush();
+                }
+                fc.write(Header.write(compression, fixedSize, count), 0);
+                out.close();
+                fc.close();
+                closed = true;
+                try {
+                    Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING);
+                }
+            } catch (IOException e) {
+                close();
+                throw new RuntimeException(e);
+            }
+        }
+
+        @Override
+        public void close() {
+            if (!closed) {
+                closed = true;
+                try {
+                    out.close();
+                    fc.close();
+                } catch (IOException ignore) {}
+            }
+            try {
+                Files.deleteIfExists(tmp);
+            } catch (IOException ignore) {}
+        }
+    }
+}
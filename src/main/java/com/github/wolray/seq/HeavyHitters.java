@@ -0,0 +1,196 @@
+package com.github.wolray.seq;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A Space-Saving sketch of the most frequent keys, in memory bounded by its {@code capacity} counters
+ * however many distinct keys there are. When a new key arrives and all counters are taken, the
+ * smallest counter is handed over to it and keeps its count as the new key's possible error.
+ * <p>
+ * Bounds, for a total weight {@code N}: each estimated {@code count} is at least the true count and
+ * at most {@code error} (itself at most {@code N / capacity}) above it, so {@code count - error} is a
+ * lower bound; every key whose true count exceeds {@code N / capacity} has a counter. Sketches of
+ * shards built with the same capacity can be {@link #merge merged}, with the same bounds over the
+ * combined weight.
+ *
+ * @author wolray
+ */
+public class HeavyHitters<K> {
+    private final int k;
+    private final int capacity;
+    private final Map<K, Counter<K>> map;
+    private final List<Counter<K>> heap;
+    private long total;
+
+    /**
+     * Reports the top {@code k} keys from {@code capacity} counters; more counters than {@code k}
+     * tighten the error, a few times {@code k} is usual.
+     */
+    public HeavyHitters(int k, int capacity) {
+        this.k = Math.max(k, 1);
+        this.capacity = Math.max(capacity, this.k);
+        map = new HashMap<>(this.capacity * 4 / 3 + 1);
+        heap = new ArrayList<>(this.capacity);
+    }
+
+    public HeavyHitters(int k) {
+        this(k, k * 4);
+    }
+
+    public void add(K key) {
+        add(key, 1);
+    }
+
+    public void add(K key, long weight) {
+        if (weight < 0) {
+            throw new IllegalArgumentException("weight: " + weight);
+        }
+        total += weight;
+        Counter<K> c = map.get(key);
+        if (c == null) {
+            if (heap.size() < capacity) {
+                c = new Counter<>(key, 0, 0);
+                c.index = heap.size();
+                heap.add(c);
+            } else {
+                c = heap.get(0);
+                map.remove(c.key);
+                c.key = key;
+                c.error = c.count;
+            }
+            map.put(key, c);
+        }
+        c.count += weight;
+        siftDown(c.index);
+    }
+
+    private void siftDown(int i) {
+        int n = heap.size();
+        Counter<K> c = heap.get(i);
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= n) {
+                break;
+            }
+            if (child + 1 < n && heap.get(child + 1).count < heap.get(child).count) {
+                child++;
+            }
+            Counter<K> next = heap.get(child);
+            if (next.count >= c.count) {
+                break;
+            }
+            heap.set(i, next);
+            next.index = i;
+            i = child;
+        }
+        heap.set(i, c);
+        c.index = i;
+    }
+
+    /**
+     * The count any key without a counter may have at most: the smallest counter once all are taken.
+     */
+    public long minCount() {
+        return heap.size() < capacity ? 0 : heap.get(0).count;
+    }
+
+    public long total() {
+        return total;
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * The estimated count of {@code key}, an upper bound of its true count.
+     */
+    public long estimate(K key) {
+        Counter<K> c = map.get(key);
+        return c != null ? c.count : minCount();
+    }
+
+    /**
+     * The {@code k} largest counters, by estimated count, descending.
+     */
+    public SeqList<Counter<K>> top() {
+        return top(k);
+    }
+
+    public SeqList<Counter<K>> top(int n) {
+        return Seq.of(heap)
+            .map(c -> new Counter<>(c.key, c.count, c.error))
+            .sortedDesc(Comparator.comparingLong((Counter<K> c) -> c.count))
+            .take(n)
+            .toList();
+    }
+
+    /**
+     * A new sketch over both inputs, such as two shards of a parallel run. A key missing from one side
+     * is counted there at that side's {@link #minCount()}, both in its count and in its error.
+     */
+    public HeavyHitters<K> merge(HeavyHitters<K> other) {
+        HeavyHitters<K> res = new HeavyHitters<>(k, capacity);
+        long min1 = minCount(), min2 = other.minCount();
+        Map<K, Counter<K>> union = new HashMap<>();
+        for (Counter<K> c : heap) {
+            Counter<K> o = other.map.get(c.key);
+            long count = c.count + (o != null ? o.count : min2);
+            long error = c.error + (o != null ? o.error : min2);
+            union.put(c.key, new Counter<>(c.key, count, error));
+        }
+        for (Counter<K> o : other.heap) {
+            if (!union.containsKey(o.key)) {
+                union.put(o.key, new Counter<>(o.key, o.count + min1, o.error + min1));
+            }
+        }
+        Seq.of(union.values())
+            .sortedDesc(Comparator.comparingLong((Counter<K> c) -> c.count))
+            .take(capacity)
+            .supply(c -> {
+                c.index = res.heap.size();
+                res.heap.add(c);
+                res.map.put(c.key, c);
+            });
+        for (int i = res.heap.size() / 2 - 1; i >= 0; i--) {
+            res.siftDown(i);
+        }
+        res.total = total + other.total;
+        return res;
+    }
+
+    @Override
+    public String toString() {
+        return top().toString();
+    }
+
+    /**
+     * An estimated {@code count} of {@code key}, which overestimates the true count by at most
+     * {@code error}.
+     */
+    public static class Counter<K> {
+        public K key;
+        public long count;
+        public long error;
+        int index;
+
+        Counter(K key, long count, long error) {
+            this.key = key;
+            this.count = count;
+            this.error = error;
+        }
+
+        public long lowerBound() {
+            return count - error;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("(%s,%d,%d)", key, count, error);
+        }
+    }
+}
@@ -1,7 +1,10 @@
 package com.github.wolray.seq;
 
+import java.util.Arrays;
 import java.util.HashSet;
+import java.util.Random;
 import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.function.*;
 
 /**
@@ -360,6 +363,53 @@ public interface IntSeq extends Seq0<IntConsumer> {
         });
     }
 
+    default int[] sample(int n) {
+        return sample(n, null);
+    }
+
+    /**
+     * A uniform random sample of up to {@code n} elements, by reservoir sampling in one pass.
+     * A null {@code random} means the current thread's {@link ThreadLocalRandom}.
+     */
+    default int[] sample(int n, Random random) {
+        Sampler sampler = new Sampler(n, random);
+        int[][] a = {new int[Math.max(Math.min(n, 1 << 16), 0)]};
+        int[] size = {0};
+        supply(t -> {
+            int i = sampler.offer();
+            if (i == size[0]) {
+                if (i == a[0].length) {
+                    a[0] = Arrays.copyOf(a[0], Math.min(n, i * 2));
+                }
+                a[0][size[0]++] = t;
+            } else if (i >= 0) {
+                a[0][i] = t;
+            }
+        });
+        return Arrays.copyOf(a[0], size[0]);
+    }
+
+    default IntSeq sampleFraction(double p) {
+        return sampleFraction(p, null);
+    }
+
+    /**
+     * Keeps each element with probability {@code p}, drawing only the gaps between kept elements.
+     * A null {@code random} means the current thread's {@link ThreadLocalRandom}.
+     */
+    default IntSeq sampleFraction(double p, Random random) {
+        return c -> {
+            Random r = random != null ? random : ThreadLocalRandom.current();
+            long[] skip = {Sampler.gap(r, p)};
+            supply(t -> {
+                if (skip[0]-- == 0) {
+                    c.accept(t);
+                    skip[0] = Sampler.gap(r, p);
+                }
+            });
+        };
+    }
+
     default int sum() {
         return foldInt(0, Integer::sum);
     }
@@ -0,0 +1,395 @@
+package com.github.wolray.seq;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * A cursor over the lines of a JSON Lines file, reused for every line. Only the requested field paths
+ * are located, in one pass that stops as soon as all of them are found; everything else is skipped
+ * without being parsed. Field {@code i} is the {@code i}-th requested path, a dotted chain of object keys.
+ *
+ * @author wolray
+ */
+public class JsonRow {
+    private static final byte MISSING = 0, STRING = 's', NUMBER = '0', TRUE = 't', FALSE = 'f', NULL = 'n',
+        OBJECT = '{', ARRAY = '[';
+    private final Node root = new Node();
+    private final int size;
+    private final int[] starts;
+    private final int[] ends;
+    private final byte[] types;
+    private final boolean[] escaped;
+    private ByteBuffer source;
+    private ByteBuffer view;
+    private byte[] buf = new byte[256];
+    private int length;
+    private int found;
+    private boolean lastEscaped;
+
+    JsonRow(String[] paths) {
+        size = paths.length;
+        starts = new int[size];
+        ends = new int[size];
+        types = new byte[size];
+        escaped = new boolean[size];
+        for (int k = 0; k < size; k++) {
+            Node node = root;
+            for (String key : paths[k].split("\\.")) {
+                node = node.child(key);
+            }
+            if (node.slot >= 0) {
+                throw new IllegalArgumentException("duplicate path: " + paths[k]);
+            }
+            node.slot = k;
+        }
+    }
+
+    /**
+     * Returns false for a blank line.
+     */
+    boolean set(ByteBuffer src, int from, int to) {
+        length = to - from;
+        if (buf.length < length) {
+            buf = new byte[Math.max(length, buf.length * 2)];
+        }
+        if (source != src) {
+            source = src;
+            view = src.duplicate();
+        }
+        view.limit(to).position(from);
+        view.get(buf, 0, length);
+        Arrays.fill(types, MISSING);
+        found = 0;
+        int i = ws(0);
+        if (i == length) {
+            return false;
+        }
+        if (buf[i] == '{' && size > 0) {
+            object(i, root);
+        }
+        return true;
+    }
+
+    /**
+     * Scans the object at {@code i}, returning the index after it, or -1 once every field is found.
+     */
+    private int object(int i, Node node) {
+        i = ws(i + 1);
+        if (peek(i) == '}') {
+            return i + 1;
+        }
+        while (true) {
+            if (peek(i) != '"') {
+                throw malformed();
+            }
+            int ks = i + 1, ke = stringEnd(ks);
+            Node child = node.find(this, ks, ke, lastEscaped);
+            i = ws(ke + 1);
+            if (peek(i) != ':') {
+                throw malformed();
+            }
+            i = ws(i + 1);
+            if (child == null) {
+                i = skip(i);
+            } else {
+                int start = i;
+                if (child.slot >= 0) {
+                    i = record(child.slot, i);
+                    if (found == size) {
+                        return -1;
+                    }
+                }
+                if (child.children != null && peek(start) == '{') {
+                    if ((i = object(start, child)) < 0) {
+                        return -1;
+                    }
+                } else if (child.slot < 0) {
+                    i = skip(i);
+                }
+            }
+            i = ws(i);
+            byte c = peek(i);
+            if (c == ',') {
+                i = ws(i + 1);
+            } else if (c == '}') {
+                return i + 1;
+            } else {
+                throw malformed();
+            }
+        }
+    }
+
+    private int record(int slot, int i) {
+        byte c = peek(i);
+        int start = i, end;
+        byte type;
+        boolean esc = false;
+        if (c == '"') {
+            start = i + 1;
+            end = stringEnd(start);
+            esc = lastEscaped;
+            type = STRING;
+            i = end + 1;
+        } else if (c == '{' || c == '[') {
+            i = end = skip(i);
+            type = c == OBJECT ? OBJECT : ARRAY;
+        } else {
+            i = end = literal(i);
+            type = c == 't' || c == 'f' || c == 'n' ? c : NUMBER;
+        }
+        if (types[slot] == MISSING) {
+            found++;
+        }
+        starts[slot] = start;
+        ends[slot] = end;
+        types[slot] = type;
+        escaped[slot] = esc;
+        return i;
+    }
+
+    private int skip(int i) {
+        byte c = peek(i);
+        if (c == '"') {
+            return stringEnd(i + 1) + 1;
+        }
+        if (c != '{' && c != '[') {
+            return literal(i);
+        }
+        for (int depth = 0; i < length; i++) {
+            byte b = buf[i];
+            if (b == '"') {
+                i = stringEnd(i + 1);
+            } else if (b == '{' || b == '[') {
+                depth++;
+            } else if ((b == '}' || b == ']') && --depth == 0) {
+                return i + 1;
+            }
+        }
+        throw malformed();
+    }
+
+    private int literal(int i) {
+        int start = i;
+        while (i < length) {
+            byte b = buf[i];
+            if (b == ',' || b == '}' || b == ']' || b == ' ' || b == '\t' || b == '\r' || b == '\n') {
+                break;
+            }
+            i++;
+        }
+        if (i == start) {
+            throw malformed();
+        }
+        return i;
+    }
+
+    private int stringEnd(int i) {
+        lastEscaped = false;
+        for (; i < length; i++) {
+            byte b = buf[i];
+            if (b == '\\') {
+                lastEscaped = true;
+                i++;
+            } else if (b == '"') {
+                return i;
+            }
+        }
+        throw malformed();
+    }
+
+    private int ws(int i) {
+        while (i < length) {
+            byte b = buf[i];
+            if (b != ' ' && b != '\t' && b != '\r' && b != '\n') {
+                break;
+            }
+            i++;
+        }
+        return i;
+    }
+
+    private byte peek(int i) {
+        return i < length ? buf[i] : 0;
+    }
+
+    private IllegalArgumentException malformed() {
+        return new IllegalArgumentException("malformed JSON: " + toString());
+    }
+
+    private String decode(int from, int to, boolean esc) {
+        if (!esc) {
+            return new String(buf, from, to - from, StandardCharsets.UTF_8);
+        }
+        StringBuilder sb = new StringBuilder(to - from);
+        int run = from;
+        for (int i = from; i < to; i++) {
+            if (buf[i] != '\\') {
+                continue;
+            }
+            sb.append(new String(buf, run, i - run, StandardCharsets.UTF_8));
+            byte e = buf[++i];
+            switch (e) {
+                case 'b':
+                    sb.append('\b');
+                    break;
+                case 'f':
+                    sb.append('\f');
+                    break;
+                case 'n':
+                    sb.append('\n');
+                    break;
+                case 'r':
+                    sb.append('\r');
+                    break;
+                case 't':
+                    sb.append('\t');
+                    break;
+                case 'u':
+                    sb.append((char)Integer.parseInt(new String(buf, i + 1, 4, StandardCharsets.US_ASCII), 16));
+                    i += 4;
+                    break;
+                default:
+                    sb.append((char)e);
+            }
+            run = i + 1;
+        }
+        sb.append(new String(buf, run, to - run, StandardCharsets.UTF_8));
+        return sb.toString();
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean has(int i) {
+        check(i);
+        return types[i] != MISSING;
+    }
+
+    /**
+     * Whether field {@code i} is null or missing.
+     */
+    public boolean isNull(int i) {
+        check(i);
+        return types[i] == MISSING || types[i] == NULL;
+    }
+
+    /**
+     * Returns a string field decoded, any other value as its JSON text, or null if null or missing.
+     */
+    public String getString(int i) {
+        if (isNull(i)) {
+            return null;
+        }
+        return types[i] == STRING ? decode(starts[i], ends[i], escaped[i]) : Bytes.utf8(buf, starts[i], ends[i]);
+    }
+
+    /**
+     * Returns the JSON text of field {@code i}, quotes included, or null if missing.
+     */
+    public String getRaw(int i) {
+        check(i);
+        if (types[i] == MISSING) {
+            return null;
+        }
+        int quote = types[i] == STRING ? 1 : 0;
+        return Bytes.utf8(buf, starts[i] - quote, ends[i] + quote);
+    }
+
+    public boolean getBoolean(int i) {
+        check(i);
+        if (types[i] != TRUE && types[i] != FALSE) {
+            throw new IllegalStateException(String.format("field %d is not a boolean: %s", i, getRaw(i)));
+        }
+        return types[i] == TRUE;
+    }
+
+    public int getInt(int i) {
+        checkNumber(i);
+        return Bytes.parseInt(buf, starts[i], ends[i]);
+    }
+
+    public long getLong(int i) {
+        checkNumber(i);
+        return Bytes.parseLong(buf, starts[i], ends[i]);
+    }
+
+    public double getDouble(int i) {
+        checkNumber(i);
+        return Bytes.parseDouble(buf, starts[i], ends[i]);
+    }
+
+    private void checkNumber(int i) {
+        check(i);
+        if (types[i] != NUMBER && (types[i] != STRING || escaped[i])) {
+            throw new NumberFormatException(String.format("field %d: %s", i, getRaw(i)));
+        }
+    }
+
+    private void check(int i) {
+        if (i < 0 || i >= size) {
+            throw new IndexOutOfBoundsException(String.format("%d, %d", i, size));
+        }
+    }
+
+    @Override
+    public String toString() {
+        return Bytes.utf8(buf, 0, length);
+    }
+
+    private static class Node {
+        String[] names = new String[0];
+        byte[][] keys = new byte[0][];
+        Node[] children;
+        int slot = -1;
+
+        Node child(String name) {
+            for (int k = 0; k < names.length; k++) {
+                if (names[k].equals(name)) {
+                    return children[k];
+                }
+            }
+            int n = names.length;
+            names = Arrays.copyOf(names, n + 1);
+            keys = Arrays.copyOf(keys, n + 1);
+            children = children == null ? new Node[1] : Arrays.copyOf(children, n + 1);
+            names[n] = name;
+            keys[n] = name.getBytes(StandardCharsets.UTF_8);
+            return children[n] = new Node();
+        }
+
+        Node find(JsonRow row, int from, int to, boolean esc) {
+            if (children == null) {
+                return null;
+            }
+            if (esc) {
+                String key = row.decode(from, to, true);
+                for (int k = 0; k < names.length; k++) {
+                    if (names[k].equals(key)) {
+                        return children[k];
+                    }
+                }
+                return null;
+            }
+            byte[] b = row.buf;
+            int n = to - from;
+            for (int k = 0; k < keys.length; k++) {
+                byte[] key = keys[k];
+                if (key.length == n && regionMatches(b, from, key)) {
+                    return children[k];
+                }
+            }
+            return null;
+        }
+
+        private static boolean regionMatches(byte[] b, int from, byte[] key) {
+            for (int j = 0; j < key.length; j++) {
+                if (b[from + j] != key[j]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package com.github.wolray.seq;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.*;
+import java.util.Arrays;
+
+/**
+ * A mutable {@link CharSequence} reused for every line of a reader, so that lines rejected
+ * by a filter cost no allocation. Call {@link #toString()} to keep a line.
+ *
+ * @author wolray
+ */
+public class Line implements CharSequence {
+    private final boolean utf8;
+    private final boolean latin;
+    private final CharsetDecoder decoder;
+    private char[] chars = new char[256];
+    private int length;
+
+    public Line(Charset charset) {
+        utf8 = charset.equals(StandardCharsets.UTF_8);
+        latin = charset.equals(StandardCharsets.ISO_8859_1);
+        if (utf8 || latin || charset.equals(StandardCharsets.US_ASCII)) {
+            decoder = null;
+        } else {
+            decoder = charset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        }
+    }
+
+    Line set(ByteBuffer buf, int from, int to) {
+        int n = to - from;
+        if (chars.length < n) {
+            chars = new char[Math.max(n, chars.length * 2)];
+        }
+        if (decoder != null) {
+            decode(buf, from, to);
+            return this;
+        }
+        char[] a = chars;
+        int i = from, j = 0;
+        for (; i < to; i++) {
+            byte b = buf.get(i);
+            if (b < 0) {
+                break;
+            }
+            a[j++] = (char)b;
+        }
+        if (i < to) {
+            if (utf8) {
+                j = decodeUtf8(buf, i, to, j);
+            } else {
+                for (; i < to; i++) {
+                    byte b = buf.get(i);
+                    a[j++] = b >= 0 || latin ? (char)(b & 0xff) : '\ufffd';
+                }
+            }
+        }
+        length = j;
+        return this;
+    }
+
+    private int decodeUtf8(ByteBuffer buf, int i, int to, int j) {
+        char[] a = chars;
+        while (i < to) {
+            int b = buf.get(i);
+            if (b >= 0) {
+                a[j++] = (char)b;
+                i++;
+            } else if ((b & 0xe0) == 0xc0 && i + 1 < to && isTail(buf.get(i + 1))) {
+                a[j++] = (char)((b & 0x1f) << 6 | buf.get(i + 1) & 0x3f);
+                i += 2;
+            } else if ((b & 0xf0) == 0xe0 && i + 2 < to && isTail(buf.get(i + 1)) && isTail(buf.get(i + 2))) {
+                a[j++] = (char)((b & 0x0f) << 12 | (buf.get(i + 1) & 0x3f) << 6 | buf.get(i + 2) & 0x3f);
+                i += 3;
+            } else if ((b & 0xf8) == 0xf0 && i + 3 < to
+                && isTail(buf.get(i + 1)) && isTail(buf.get(i + 2)) && isTail(buf.get(i + 3))) {
+                int cp = (b & 0x07) << 18 | (buf.get(i + 1) & 0x3f) << 12 | (buf.get(i + 2) & 0x3f) << 6 | buf.get(i + 3) & 0x3f;
+                a[j++] = Character.highSurrogate(cp);
+                a[j++] = Character.lowSurrogate(cp);
+                i += 4;
+            } else {
+                a[j++] = '\ufffd';
+                i++;
+            }
+        }
+        return j;
+    }
+
+    private static boolean isTail(byte b) {
+        return (b & 0xc0) == 0x80;
+    }
+
+    private void decode(ByteBuffer buf, int from, int to) {
+        ByteBuffer in = buf.duplicate();
+        in.limit(to).position(from);
+        int max = (int)Math.ceil((to - from) * (double)decoder.maxCharsPerByte());
+        if (chars.length < max) {
+            chars = new char[max];
+        }
+        CharBuffer out = CharBuffer.wrap(chars);
+        decoder.reset();
+        decoder.decode(in, out, true);
+        decoder.flush(out);
+        length = out.position();
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        if (index < 0 || index >= length) {
+            throw new IndexOutOfBoundsException(String.format("%d, %d", index, length));
+        }
+        return chars[index];
+    }
+
+    @Override
+    public String subSequence(int start, int end) {
+        if (start < 0 || end > length || start > end) {
+            throw new IndexOutOfBoundsException(String.format("%d, %d, %d", start, end, length));
+        }
+        return new String(chars, start, end - start);
+    }
+
+    @Override
+    public String toString() {
+        return new String(chars, 0, length);
+    }
+
+    public boolean isEmpty() {
+        return length == 0;
+    }
+
+    public boolean contentEquals(CharSequence cs) {
+        return cs.length() == length && regionMatches(0, cs);
+    }
+
+    public boolean startsWith(CharSequence prefix) {
+        return prefix.length() <= length && regionMatches(0, prefix);
+    }
+
+    public boolean endsWith(CharSequence suffix) {
+        return suffix.length() <= length && regionMatches(length - suffix.length(), suffix);
+    }
+
+    public boolean contains(CharSequence cs) {
+        return indexOf(cs) >= 0;
+    }
+
+    public int indexOf(char c) {
+        return indexOf(c, 0);
+    }
+
+    public int indexOf(char c, int from) {
+        for (int i = Math.max(from, 0); i < length; i++) {
+            if (chars[i] == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public int indexOf(CharSequence cs) {
+        int n = cs.length();
+        if (n == 0) {
+            return 0;
+        }
+        char first = cs.charAt(0);
+        for (int i = 0, max = length - n; i <= max; i++) {
+            if (chars[i] == first && regionMatches(i, cs)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private boolean regionMatches(int offset, CharSequence cs) {
+        for (int i = 0, n = cs.length(); i < n; i++) {
+            if (chars[offset + i] != cs.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public char[] toCharArray() {
+        return Arrays.copyOf(chars, length);
+    }
+}
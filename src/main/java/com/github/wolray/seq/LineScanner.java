@@ -0,0 +1,119 @@
+package com.github.wolray.seq;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * Splits a channel into lines ended by {@code '\n'}, {@code '\r'} or {@code "\r\n"}, as
+ * {@link java.io.BufferedReader#readLine()} does, without decoding, handing each line over as a byte
+ * range of a reused direct buffer. Each thread keeps its last buffer for the next scan, so reading many
+ * small files or ranges does not allocate direct memory each time.
+ *
+ * @author wolray
+ */
+class LineScanner {
+    static final int BUFFER_SIZE = 1 << 20;
+    static final int MAX_POOLED_SIZE = BUFFER_SIZE << 2;
+    private static final ThreadLocal<ByteBuffer> POOL = new ThreadLocal<>();
+
+    static void scan(ReadableByteChannel ch, int bufferSize, LineConsumer consumer) throws IOException {
+        scan(ch, 0, Long.MAX_VALUE, bufferSize, consumer);
+    }
+
+    /**
+     * Scans the lines starting within {@code [start, end)} of a file, the last one read through to its end.
+     * Any other channel is read sequentially from its current position.
+     */
+    static void scan(ReadableByteChannel ch, long start, long end, int bufferSize, LineConsumer consumer) throws IOException {
+        ByteBuffer buf = POOL.get();
+        if (buf != null && buf.capacity() >= bufferSize) {
+            POOL.remove();
+            buf.clear();
+        } else {
+            buf = ByteBuffer.allocateDirect(bufferSize);
+        }
+        ByteBuffer[] holder = {buf};
+        try {
+            scan(ch, start, end, holder, consumer);
+        } finally {
+            if (holder[0].capacity() <= MAX_POOLED_SIZE) {
+                POOL.set(holder[0]);
+            }
+        }
+    }
+
+    private static void scan(ReadableByteChannel ch, long start, long end, ByteBuffer[] holder, LineConsumer consumer) throws IOException {
+        FileChannel fc = ch instanceof FileChannel ? (FileChannel)ch : null;
+        ByteBuffer buf = holder[0];
+        boolean skip = fc != null && start > 0;
+        long pos = skip ? start - 1 : fc != null ? start : 0;
+        int lineStart = 0, scanned = 0;
+        while (true) {
+            int n = fc != null ? fc.read(buf, pos + buf.position()) : ch.read(buf);
+            if (n < 0) {
+                if (lineStart < buf.position() && !skip && pos + lineStart < end) {
+                    emit(consumer, buf, lineStart, buf.position());
+                }
+                return;
+            }
+            int limit = buf.position();
+            int i = scanned;
+            for (; i < limit; i++) {
+                byte b = buf.get(i);
+                if (b != '\n' && b != '\r') {
+                    continue;
+                }
+                int next = i + 1;
+                if (b == '\r') {
+                    if (next == limit) {
+                        break;
+                    }
+                    if (buf.get(next) == '\n') {
+                        next++;
+                    }
+                }
+                if (skip) {
+                    skip = false;
+                } else if (pos + lineStart < end) {
+                    consumer.accept(buf, lineStart, i);
+                } else {
+                    return;
+                }
+                lineStart = next;
+                i = next - 1;
+            }
+            scanned = i;
+            if (!buf.hasRemaining()) {
+                if (skip) {
+                    buf.limit(limit).position(scanned);
+                    buf.compact();
+                    pos += scanned;
+                    scanned = 0;
+                } else if (lineStart == 0) {
+                    ByteBuffer larger = ByteBuffer.allocateDirect(buf.capacity() * 2);
+                    buf.flip();
+                    buf = holder[0] = larger.put(buf);
+                } else {
+                    buf.limit(limit).position(lineStart);
+                    buf.compact();
+                    pos += lineStart;
+                    scanned -= lineStart;
+                    lineStart = 0;
+                }
+            }
+        }
+    }
+
+    private static void emit(LineConsumer consumer, ByteBuffer buf, int from, int to) {
+        if (to > from && buf.get(to - 1) == '\r') {
+            to--;
+        }
+        consumer.accept(buf, from, to);
+    }
+
+    interface LineConsumer {
+        void accept(ByteBuffer buf, int from, int to);
+    }
+}
@@ -0,0 +1,248 @@
+package com.github.wolray.seq;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.LongFunction;
+
+/**
+ * An open-addressing (linear probing) map from primitive longs to objects, with keys and values in two
+ * parallel arrays and no entry objects. Key 0 marks a free slot and is kept aside. As a seq it supplies
+ * {@code (key, value)} pairs; {@link #forEachEntry} visits entries without allocating. Iteration order
+ * is unspecified.
+ *
+ * @author wolray
+ */
+public class LongObjSeqMap<V> implements Seq<LongPair<V>> {
+    private long[] keys;
+    private Object[] values;
+    private int size;
+    private int maxSize;
+    private boolean hasZero;
+    private Object zeroValue;
+
+    public LongObjSeqMap() {
+        this(16);
+    }
+
+    public LongObjSeqMap(int expectedSize) {
+        int cap = 4;
+        while (cap * 3 / 4 <= expectedSize) {
+            cap <<= 1;
+        }
+        allocate(cap);
+    }
+
+    private void allocate(int cap) {
+        keys = new long[cap];
+        values = new Object[cap];
+        maxSize = cap * 3 / 4;
+    }
+
+    private static int slot(long key, int mask) {
+        long h = key * 0x9e3779b97f4a7c15L;
+        return (int)(h ^ h >>> 32) & mask;
+    }
+
+    private int find(long key) {
+        int mask = keys.length - 1;
+        for (int i = slot(key, mask); ; i = i + 1 & mask) {
+            long cur = keys[i];
+            if (cur == key) {
+                return i;
+            }
+            if (cur == 0) {
+                return ~i;
+            }
+        }
+    }
+
+    private void insert(int negSlot, long key, V value) {
+        int i = ~negSlot;
+        keys[i] = key;
+        values[i] = value;
+        if (++size > maxSize) {
+            rehash();
+        }
+    }
+
+    private void rehash() {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        allocate(oldKeys.length << 1);
+        int mask = keys.length - 1;
+        for (int j = 0; j < oldKeys.length; j++) {
+            long k = oldKeys[j];
+            if (k != 0) {
+                int i = slot(k, mask);
+                while (keys[i] != 0) {
+                    i = i + 1 & mask;
+                }
+                keys[i] = k;
+                values[i] = oldValues[j];
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        if (key == 0) {
+            return (V)zeroValue;
+        }
+        int i = find(key);
+        return i >= 0 ? (V)values[i] : null;
+    }
+
+    public V getOrDefault(long key, V defaultValue) {
+        return containsKey(key) ? get(key) : defaultValue;
+    }
+
+    public boolean containsKey(long key) {
+        return key == 0 ? hasZero : find(key) >= 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V put(long key, V value) {
+        if (key == 0) {
+            V old = (V)zeroValue;
+            if (!hasZero) {
+                hasZero = true;
+                size++;
+            }
+            zeroValue = value;
+            return old;
+        }
+        int i = find(key);
+        if (i < 0) {
+            insert(i, key, value);
+            return null;
+        }
+        V old = (V)values[i];
+        values[i] = value;
+        return old;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V computeIfAbsent(long key, LongFunction<V> function) {
+        if (key == 0) {
+            if (!hasZero) {
+                put(0, function.apply(0));
+            }
+            return (V)zeroValue;
+        }
+        int i = find(key);
+        if (i >= 0) {
+            return (V)values[i];
+        }
+        V v = function.apply(key);
+        insert(i, key, v);
+        return v;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V remove(long key) {
+        if (key == 0) {
+            V old = (V)zeroValue;
+            if (hasZero) {
+                hasZero = false;
+                zeroValue = null;
+                size--;
+            }
+            return old;
+        }
+        int i = find(key);
+        if (i < 0) {
+            return null;
+        }
+        V old = (V)values[i];
+        int mask = keys.length - 1;
+        for (int j = i + 1 & mask; keys[j] != 0; j = j + 1 & mask) {
+            int home = slot(keys[j], mask);
+            if ((j - home & mask) >= (j - i & mask)) {
+                keys[i] = keys[j];
+                values[i] = values[j];
+                i = j;
+            }
+        }
+        keys[i] = 0;
+        values[i] = null;
+        size--;
+        return old;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, 0);
+        Arrays.fill(values, null);
+        hasZero = false;
+        zeroValue = null;
+        size = 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    public void forEachEntry(LongObjConsumer<V> consumer) {
+        if (hasZero) {
+            consumer.accept(0, (V)zeroValue);
+        }
+        long[] ks = keys;
+        Object[] vs = values;
+        for (int i = 0; i < ks.length; i++) {
+            if (ks[i] != 0) {
+                consumer.accept(ks[i], (V)vs[i]);
+            }
+        }
+    }
+
+    @Override
+    public void supply(Consumer<LongPair<V>> consumer) {
+        forEachEntry((k, v) -> consumer.accept(new LongPair<>(k, v)));
+    }
+
+    @Override
+    public int sizeOrDefault() {
+        return size;
+    }
+
+    public LongSeq keys() {
+        return c -> forEachEntry((k, v) -> c.accept(k));
+    }
+
+    public Seq<V> values() {
+        return c -> forEachEntry((k, v) -> c.accept(v));
+    }
+
+    /**
+     * Replaces every value in place, as {@link SeqMap#replaceValue} does.
+     */
+    @SuppressWarnings("unchecked")
+    public <E> LongObjSeqMap<E> replaceValue(Function<V, E> function) {
+        if (hasZero) {
+            zeroValue = function.apply((V)zeroValue);
+        }
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != 0) {
+                values[i] = function.apply((V)values[i]);
+            }
+        }
+        return (LongObjSeqMap<E>)this;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("{");
+        forEachEntry((k, v) -> {
+            if (sb.length() > 1) {
+                sb.append(", ");
+            }
+            sb.append(k).append('=').append(v);
+        });
+        return sb.append('}').toString();
+    }
+}
@@ -0,0 +1,200 @@
+package com.github.wolray.seq;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.*;
+
+/**
+ * @author wolray
+ */
+public interface LongSeq extends Seq0<LongConsumer> {
+    LongSeq empty = c -> {};
+    LongConsumer nothing = t -> {};
+
+    static LongSeq of(long... ts) {
+        return c -> {
+            for (long t : ts) {
+                c.accept(t);
+            }
+        };
+    }
+
+    default boolean all(LongPredicate predicate) {
+        return any(false, predicate.negate());
+    }
+
+    default boolean any(boolean ifFound, LongPredicate predicate) {
+        return find(!ifFound, predicate, t -> ifFound);
+    }
+
+    default boolean any(LongPredicate predicate) {
+        return any(true, predicate);
+    }
+
+    default double average() {
+        double[] a = new double[]{0, 0};
+        supply(t -> {
+            a[0] += t;
+            a[1] += 1;
+        });
+        return a[1] != 0 ? a[0] / a[1] : 0;
+    }
+
+    default Seq<Long> boxed() {
+        return c -> supply(c::accept);
+    }
+
+    default int count() {
+        int[] a = new int[]{0};
+        supply(t -> a[0]++);
+        return a[0];
+    }
+
+    default int count(LongPredicate predicate) {
+        int[] a = new int[]{0};
+        supply(t -> {
+            if (predicate.test(t)) {
+                a[0]++;
+            }
+        });
+        return a[0];
+    }
+
+    default LongSeq drop(int n) {
+        return n <= 0 ? this : c -> {
+            int[] i = new int[]{0};
+            supply(t -> {
+                if (i[0] < n) {
+                    i[0]++;
+                } else {
+                    c.accept(t);
+                }
+            });
+        };
+    }
+
+    default LongSeq filter(LongPredicate predicate) {
+        return c -> supply(t -> {
+            if (predicate.test(t)) {
+                c.accept(t);
+            }
+        });
+    }
+
+    default <E> E find(E ifNotFound, LongPredicate predicate, LongFunction<E> function) {
+        Mutable<E> m = new Mutable<>(ifNotFound);
+        tillStop(t -> {
+            if (predicate.test(t)) {
+                m.it = function.apply(t);
+                stop();
+            }
+        });
+        return m.it;
+    }
+
+    default Long first() {
+        return find(null, t -> true, t -> t);
+    }
+
+    default long fold(long init, LongBinaryOperator function) {
+        long[] a = new long[]{init};
+        tillStop(t -> a[0] = function.applyAsLong(a[0], t));
+        return a[0];
+    }
+
+    default LongSeq map(LongUnaryOperator function) {
+        return c -> supply(t -> c.accept(function.applyAsLong(t)));
+    }
+
+    default <E> Seq<E> mapToObj(LongFunction<E> function) {
+        return c -> supply(t -> c.accept(function.apply(t)));
+    }
+
+    default Long max() {
+        return mapToObj(t -> (Long)t).fold(null, (f, t) -> f == null || f < t ? t : f);
+    }
+
+    default Long min() {
+        return mapToObj(t -> (Long)t).fold(null, (f, t) -> f == null || f > t ? t : f);
+    }
+
+    default LongSeq onEach(LongConsumer consumer) {
+        return c -> supply(consumer.andThen(c));
+    }
+
+    default long[] sample(int n) {
+        return sample(n, null);
+    }
+
+    /**
+     * A uniform random sample of up to {@code n} elements, by reservoir sampling in one pass.
+     * A null {@code random} means the current thread's {@link ThreadLocalRandom}.
+     */
+    default long[] sample(int n, Random random) {
+        Sampler sampler = new Sampler(n, random);
+        long[][] a = {new long[Math.max(Math.min(n, 1 << 16), 0)]};
+        int[] size = {0};
+        supply(t -> {
+            int i = sampler.offer();
+            if (i == size[0]) {
+                if (i == a[0].length) {
+                    a[0] = Arrays.copyOf(a[0], Math.min(n, i * 2));
+                }
+                a[0][size[0]++] = t;
+            } else if (i >= 0) {
+                a[0][i] = t;
+            }
+        });
+        return Arrays.copyOf(a[0], size[0]);
+    }
+
+    default LongSeq sampleFraction(double p) {
+        return sampleFraction(p, null);
+    }
+
+    /**
+     * Keeps each element with probability {@code p}, drawing only the gaps between kept elements.
+     * A null {@code random} means the current thread's {@link ThreadLocalRandom}.
+     */
+    default LongSeq sampleFraction(double p, Random random) {
+        return c -> {
+            Random r = random != null ? random : ThreadLocalRandom.current();
+            long[] skip = {Sampler.gap(r, p)};
+            supply(t -> {
+                if (skip[0]-- == 0) {
+                    c.accept(t);
+                    skip[0] = Sampler.gap(r, p);
+                }
+            });
+        };
+    }
+
+    default long sum() {
+        return fold(0, Long::sum);
+    }
+
+    default LongSeq take(int n) {
+        return n <= 0 ? empty : c -> {
+            int[] i = new int[]{0};
+            tillStop(t -> {
+                c.accept(t);
+                if (++i[0] >= n) {
+                    stop();
+                }
+            });
+        };
+    }
+
+    default long[] toArray() {
+        long[][] a = new long[][]{new long[10]};
+        int[] n = new int[]{0};
+        supply(t -> {
+            if (n[0] == a[0].length) {
+                a[0] = Arrays.copyOf(a[0], n[0] * 2);
+            }
+            a[0][n[0]++] = t;
+        });
+        return Arrays.copyOf(a[0], n[0]);
+    }
+}
@@ -0,0 +1,157 @@
+package com.github.wolray.seq;
+
+import java.util.*;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.BiPredicate;
+import java.util.function.Consumer;
+
+/**
+ * A read-only map computed on access from a source map, behind the {@code *View} methods of
+ * {@link SeqMap}. Nothing is copied: every read goes to the source, so a view follows later changes of
+ * it, and a mapped value is computed each time it is read.
+ *
+ * @author wolray
+ */
+abstract class MapView<K, V, E> extends AbstractMap<K, E> {
+    final Map<K, V> source;
+    final Map<?, ?> origin;
+    private Set<Entry<K, E>> entrySet;
+
+    MapView(Map<K, V> source) {
+        this.source = source;
+        origin = source instanceof MapView ? ((MapView<?, ?, ?>)source).origin : source;
+    }
+
+    static <K, V, E> MapView<K, V, E> map(Map<K, V> source, BiFunction<K, V, E> function) {
+        return new MapView<K, V, E>(source) {
+            @Override
+            @SuppressWarnings("unchecked")
+            public E get(Object key) {
+                V v = source.get(key);
+                return v != null || source.containsKey(key) ? function.apply((K)key, v) : null;
+            }
+
+            @Override
+            public boolean containsKey(Object key) {
+                return source.containsKey(key);
+            }
+
+            @Override
+            public int size() {
+                return source.size();
+            }
+
+            @Override
+            public void forEach(BiConsumer<? super K, ? super E> action) {
+                source.forEach((k, v) -> action.accept(k, function.apply(k, v)));
+            }
+
+            @Override
+            Iterator<Entry<K, E>> entries() {
+                Iterator<Entry<K, V>> iterator = source.entrySet().iterator();
+                return new Iterator<Entry<K, E>>() {
+                    @Override
+                    public boolean hasNext() {
+                        return iterator.hasNext();
+                    }
+
+                    @Override
+                    public Entry<K, E> next() {
+                        Entry<K, V> e = iterator.next();
+                        return new SimpleImmutableEntry<>(e.getKey(), function.apply(e.getKey(), e.getValue()));
+                    }
+                };
+            }
+        };
+    }
+
+    /**
+     * Its {@link #size()} is a pass over the source.
+     */
+    static <K, V> MapView<K, V, V> filter(Map<K, V> source, BiPredicate<K, V> predicate) {
+        return new MapView<K, V, V>(source) {
+            @Override
+            @SuppressWarnings("unchecked")
+            public V get(Object key) {
+                V v = source.get(key);
+                return (v != null || source.containsKey(key)) && predicate.test((K)key, v) ? v : null;
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public boolean containsKey(Object key) {
+                V v = source.get(key);
+                return (v != null || source.containsKey(key)) && predicate.test((K)key, v);
+            }
+
+            @Override
+            public int size() {
+                int[] n = new int[1];
+                forEach((k, v) -> n[0]++);
+                return n[0];
+            }
+
+            @Override
+            public void forEach(BiConsumer<? super K, ? super V> action) {
+                source.forEach((k, v) -> {
+                    if (predicate.test(k, v)) {
+                        action.accept(k, v);
+                    }
+                });
+            }
+
+            @Override
+            Iterator<Entry<K, V>> entries() {
+                Iterator<Entry<K, V>> iterator = source.entrySet().iterator();
+                return new PickItr<Entry<K, V>>() {
+                    @Override
+                    public Entry<K, V> pick() {
+                        while (iterator.hasNext()) {
+                            Entry<K, V> e = iterator.next();
+                            if (predicate.test(e.getKey(), e.getValue())) {
+                                return new SimpleImmutableEntry<>(e);
+                            }
+                        }
+                        return stop();
+                    }
+                };
+            }
+        };
+    }
+
+    abstract Iterator<Entry<K, E>> entries();
+
+    @Override
+    public Set<Entry<K, E>> entrySet() {
+        if (entrySet == null) {
+            entrySet = new AbstractSet<Entry<K, E>>() {
+                @Override
+                public Iterator<Entry<K, E>> iterator() {
+                    return entries();
+                }
+
+                @Override
+                public int size() {
+                    return MapView.this.size();
+                }
+
+                @Override
+                public boolean isEmpty() {
+                    return MapView.this.isEmpty();
+                }
+
+                @Override
+                public void forEach(Consumer<? super Entry<K, E>> action) {
+                    MapView.this.forEach((k, e) -> action.accept(new SimpleImmutableEntry<>(k, e)));
+                }
+            };
+        }
+        return entrySet;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return !entries().hasNext();
+    }
+}
@@ -0,0 +1,214 @@
+package com.github.wolray.seq;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.Consumer;
+
+/**
+ * A read-only list over the records of a memory-mapped {@link FileCache} file. Records are decoded
+ * only when visited. Fixed-width records are located by arithmetic, variable-width ones by an
+ * offset index built on the first random access. Traversals walk the records in order without it.
+ *
+ * @author wolray
+ */
+public class MappedList<T> implements AdderList<T> {
+    private static final int WINDOW_SHIFT = 30;
+    private static final long WINDOW_MASK = (1L << WINDOW_SHIFT) - 1;
+    private transient final Source<T> source;
+    private transient final int from;
+    private transient final int size;
+
+    private MappedList(Source<T> source, int from, int size) {
+        this.source = source;
+        this.from = from;
+        this.size = size;
+    }
+
+    static <T> MappedList<T> map(FileChannel fc, long start, int fixedSize, long count, Codec<T> codec) throws IOException {
+        long length = fc.size();
+        ByteBuffer[] windows = new ByteBuffer[(int)(length >>> WINDOW_SHIFT) + 1];
+        for (int k = 0; k < windows.length; k++) {
+            long pos = (long)k << WINDOW_SHIFT;
+            windows[k] = fc.map(FileChannel.MapMode.READ_ONLY, pos, Math.min(1L << WINDOW_SHIFT, length - pos));
+        }
+        int size = (int)Math.min(count, Integer.MAX_VALUE);
+        return new MappedList<>(new Source<>(windows, start, fixedSize, size, codec), 0, size);
+    }
+
+    @Override
+    public void supply(Consumer<T> consumer) {
+        if (size == 0) {
+            return;
+        }
+        Source<T> s = source;
+        long pos = s.offset(from);
+        for (int i = 0; i < size; i++) {
+            int len = s.fixedSize;
+            if (len <= 0) {
+                long v = s.varint(pos);
+                len = (int)v;
+                pos += v >>> 32;
+            }
+            consumer.accept(s.codec.read(s.slice(pos, len)));
+            pos += len;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return join();
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return new Iterator<T>() {
+            final Source<T> s = source;
+            long pos = size > 0 ? s.offset(from) : 0;
+            int i;
+
+            @Override
+            public boolean hasNext() {
+                return i < size;
+            }
+
+            @Override
+            public T next() {
+                if (i >= size) {
+                    throw new NoSuchElementException();
+                }
+                i++;
+                int len = s.fixedSize;
+                if (len <= 0) {
+                    long v = s.varint(pos);
+                    len = (int)v;
+                    pos += v >>> 32;
+                }
+                T t = s.codec.read(s.slice(pos, len));
+                pos += len;
+                return t;
+            }
+        };
+    }
+
+    @Override
+    public boolean add(T t) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void clear() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public T get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException(String.format("%d, %d", index, size));
+        }
+        Source<T> s = source;
+        long pos = s.offset(from + index);
+        int len = s.fixedSize;
+        if (len <= 0) {
+            long v = s.varint(pos);
+            len = (int)v;
+            pos += v >>> 32;
+        }
+        return s.codec.read(s.slice(pos, len));
+    }
+
+    @Override
+    public MappedList<T> subList(int fromIndex, int toIndex) {
+        if (fromIndex < 0 || toIndex > size || fromIndex > toIndex) {
+            throw new IndexOutOfBoundsException(String.format("%d, %d, %d", fromIndex, toIndex, size));
+        }
+        return new MappedList<>(source, from + fromIndex, toIndex - fromIndex);
+    }
+
+    private static class Source<T> {
+        final ByteBuffer[] windows;
+        final long start;
+        final int fixedSize;
+        final int count;
+        final Codec<T> codec;
+        volatile long[] index;
+
+        Source(ByteBuffer[] windows, long start, int fixedSize, int count, Codec<T> codec) {
+            this.windows = windows;
+            this.start = start;
+            this.fixedSize = fixedSize;
+            this.count = count;
+            this.codec = codec;
+        }
+
+        long offset(int i) {
+            if (fixedSize > 0) {
+                return start + (long)i * fixedSize;
+            }
+            if (i == 0) {
+                return start;
+            }
+            long[] a = index;
+            if (a == null) {
+                a = buildIndex();
+            }
+            return a[i];
+        }
+
+        private synchronized long[] buildIndex() {
+            if (index == null) {
+                long[] a = new long[count];
+                long pos = start;
+                for (int i = 0; i < count; i++) {
+                    a[i] = pos;
+                    long v = varint(pos);
+                    pos += (v >>> 32) + (int)v;
+                }
+                index = a;
+            }
+            return index;
+        }
+
+        byte byteAt(long pos) {
+            return windows[(int)(pos >>> WINDOW_SHIFT)].get((int)(pos & WINDOW_MASK));
+        }
+
+        long varint(long pos) {
+            int res = 0;
+            for (int i = 0, shift = 0; ; i++, shift += 7) {
+                byte b = byteAt(pos + i);
+                res |= (b & 0x7f) << shift;
+                if (b >= 0) {
+                    return (long)(i + 1) << 32 | res & 0xffffffffL;
+                }
+            }
+        }
+
+        ByteBuffer slice(long pos, int len) {
+            ByteBuffer w = windows[(int)(pos >>> WINDOW_SHIFT)];
+            int offset = (int)(pos & WINDOW_MASK);
+            if (offset + len <= w.limit()) {
+                ByteBuffer buf = w.duplicate();
+                buf.limit(offset + len).position(offset);
+                return buf;
+            }
+            ByteBuffer buf = ByteBuffer.allocate(len);
+            for (long p = pos; buf.hasRemaining(); ) {
+                ByteBuffer part = windows[(int)(p >>> WINDOW_SHIFT)].duplicate();
+                int o = (int)(p & WINDOW_MASK);
+                part.position(o).limit(Math.min(part.limit(), o + buf.remaining()));
+                p += part.remaining();
+                buf.put(part);
+            }
+            buf.flip();
+            return buf;
+        }
+    }
+}
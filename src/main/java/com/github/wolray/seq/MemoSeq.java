@@ -0,0 +1,84 @@
+package com.github.wolray.seq;
+
+import java.util.function.Consumer;
+
+/**
+ * A seq recording elements as they are first produced. Every traversal replays the recorded prefix,
+ * then pulls further elements from one cursor over the source kept between traversals, only as far as
+ * the consumer goes, so the source runs once and a short-circuited traversal never evaluates all of
+ * it. The cursor is {@link Seq#iterator(int)} of the source: an iterator-backed source is pulled on
+ * the caller's thread, any other one on a helper thread at most a few buffers ahead. The cursor is
+ * closed once the source is exhausted, when the memo is {@link #close() closed}, or when it is garbage
+ * collected. Not thread-safe, see {@link SharedSeq} for that.
+ *
+ * @author wolray
+ */
+public class MemoSeq<T> implements Seq<T>, AutoCloseable {
+    private final BatchList<T> recorded = new BatchList<>();
+    private final int bufferSize;
+    private Seq<T> source;
+    private CloseableItr<T> cursor;
+    private RuntimeException error;
+
+    MemoSeq(Seq<T> source, int bufferSize) {
+        this.source = source;
+        this.bufferSize = bufferSize;
+    }
+
+    @Override
+    public void supply(Consumer<T> consumer) {
+        for (int i = 0; ; i++) {
+            if (i < recorded.size() || pull()) {
+                consumer.accept(recorded.get(i));
+            } else {
+                return;
+            }
+        }
+    }
+
+    private boolean pull() {
+        if (error != null) {
+            throw error;
+        }
+        if (source == null) {
+            return false;
+        }
+        if (cursor == null) {
+            cursor = source.iterator(bufferSize);
+        }
+        try {
+            if (cursor.hasNext()) {
+                recorded.add(cursor.next());
+                return true;
+            }
+        } catch (RuntimeException e) {
+            error = e;
+            close();
+            throw e;
+        }
+        close();
+        return false;
+    }
+
+    /**
+     * Stops pulling from the source; the memo keeps what it has recorded so far, as if the source ended there.
+     */
+    @Override
+    public void close() {
+        if (cursor != null) {
+            cursor.close();
+            cursor = null;
+        }
+        source = null;
+        recorded.trimToSize();
+    }
+
+    public boolean isComplete() {
+        return source == null && error == null;
+    }
+
+    @Override
+    public int sizeOrDefault() {
+        return source == null ? recorded.size() : Seq.super.sizeOrDefault();
+    }
+}
@@ -0,0 +1,173 @@
+package com.github.wolray.seq;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Queue;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * A lock-free {@link Queue} like {@link SinglyList} for many producer threads and one consumer thread.
+ * A producer links its node with a single swap of the tail, so adds never wait on each other or on
+ * the consumer; the consumer polls from the head without any atomic operation. Elements from one
+ * producer come out in the order it added them.
+ * <p>
+ * Only the consumer thread may poll, peek, clear or traverse. A traversal, {@link #size()} included,
+ * sees the elements already linked and may miss an add still in progress.
+ *
+ * @author wolray
+ */
+public class MpscQueue<T> implements AdderList<T>, Queue<T> {
+    @SuppressWarnings("rawtypes")
+    private static final AtomicReferenceFieldUpdater<Node, Node> NEXT =
+        AtomicReferenceFieldUpdater.newUpdater(Node.class, Node.class, "next");
+    private final AtomicReference<Node<T>> tail;
+    private final LongAdder added = new LongAdder();
+    private transient Node<T> head;
+    private volatile long polled;
+
+    public MpscQueue() {
+        head = new Node<>(null);
+        tail = new AtomicReference<>(head);
+    }
+
+    @Override
+    public boolean add(T t) {
+        Node<T> node = new Node<>(t);
+        Node<T> prev = tail.getAndSet(node);
+        NEXT.lazySet(prev, node);
+        added.increment();
+        return true;
+    }
+
+    @Override
+    public boolean offer(T t) {
+        return add(t);
+    }
+
+    /**
+     * Polls every element linked so far to {@code consumer}, and returns how many there were.
+     */
+    public int drain(Consumer<T> consumer) {
+        int n = 0;
+        for (Node<T> next = head.next; next != null; next = head.next) {
+            consumer.accept(unlink(next));
+            n++;
+        }
+        return n;
+    }
+
+    private T unlink(Node<T> next) {
+        T t = next.t;
+        next.t = null;
+        head = next;
+        polled++;
+        return t;
+    }
+
+    @Override
+    public T poll() {
+        Node<T> next = head.next;
+        return next != null ? unlink(next) : null;
+    }
+
+    @Override
+    public T remove() {
+        Node<T> next = head.next;
+        if (next == null) {
+            throw new NoSuchElementException();
+        }
+        return unlink(next);
+    }
+
+    @Override
+    public T peek() {
+        Node<T> next = head.next;
+        return next != null ? next.t : null;
+    }
+
+    @Override
+    public T element() {
+        Node<T> next = head.next;
+        if (next == null) {
+            throw new NoSuchElementException();
+        }
+        return next.t;
+    }
+
+    @Override
+    public void clear() {
+        for (Node<T> next = head.next; next != null; next = head.next) {
+            unlink(next);
+        }
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return head.next == null;
+    }
+
+    @Override
+    public int size() {
+        long n = added.sum() - polled;
+        return (int)Math.max(0, Math.min(n, Integer.MAX_VALUE));
+    }
+
+    @Override
+    public T get(int index) {
+        if (index >= 0) {
+            int i = 0;
+            for (Node<T> node = head.next; node != null; node = node.next) {
+                if (i++ == index) {
+                    return node.t;
+                }
+            }
+        }
+        throw new IndexOutOfBoundsException(String.format("%d, %d", index, size()));
+    }
+
+    @Override
+    public void supply(Consumer<T> consumer) {
+        for (Node<T> node = head.next; node != null; node = node.next) {
+            consumer.accept(node.t);
+        }
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return new Iterator<T>() {
+            Node<T> node = head.next;
+
+            @Override
+            public boolean hasNext() {
+                return node != null;
+            }
+
+            @Override
+            public T next() {
+                if (node == null) {
+                    throw new NoSuchElementException();
+                }
+                T t = node.t;
+                node = node.next;
+                return t;
+            }
+        };
+    }
+
+    @Override
+    public String toString() {
+        return join();
+    }
+
+    static class Node<T> {
+        T t;
+        volatile Node<T> next;
+
+        Node(T t) {
+            this.t = t;
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package com.github.wolray.seq;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+/**
+ * Reads many files with bounded concurrency. Interleaved output reads up to {@code parallelism} files
+ * at once and accepts elements straight from the workers, like {@link Seq#parallel()}. Ordered output
+ * keeps up to {@code parallelism} files ahead being loaded into memory (decompressed, if need be)
+ * while the current one is parsed and emitted on the calling thread, so reused cursors stay valid.
+ * Files too large to load are read in place when their turn comes.
+ *
+ * @author wolray
+ */
+final class MultiFileReader {
+    static final int PARALLELISM = 8;
+    static final int PREFETCH_SIZE = 1 << 23;
+
+    private MultiFileReader() {}
+
+    /**
+     * Regular files under {@code root} whose path relative to it matches {@code glob} (all if null),
+     * crawled in parallel and supplied in path order.
+     */
+    static Seq<Path> files(Path root, String glob) {
+        PathMatcher matcher = glob != null ? root.getFileSystem().getPathMatcher("glob:" + glob) : null;
+        return c -> {
+            BatchList<Path> found = new BatchList<>();
+            Seq.ofTreeParallel(root, MultiFileReader::children)
+                .filter(p -> Files.isRegularFile(p) && (matcher == null || matcher.matches(root.relativize(p))))
+                .supply(p -> {
+                    synchronized (found) {
+                        found.add(p);
+                    }
+                });
+            found.sorted().supply(c);
+        };
+    }
+
+    private static Seq<Path> children(Path path) {
+        if (!Files.isDirectory(path)) {
+            return Seq.empty();
+        }
+        BatchList<Path> list = new BatchList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(path)) {
+            stream.forEach(list::add);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        return list;
+    }
+
+    static <T> Seq<T> read(Seq<Path> paths, int parallelism, boolean ordered, int prefetchSize,
+        Function<Path, Seq<T>> reader, Function<byte[], Seq<T>> memReader) {
+        int n = Math.max(parallelism, 1);
+        return c -> {
+            ForkJoinPool pool = new ForkJoinPool(n);
+            try {
+                if (ordered) {
+                    ArrayDeque<Pair<Path, ForkJoinTask<byte[]>>> window = new ArrayDeque<>();
+                    paths.supply(p -> {
+                        window.add(new Pair<>(p, pool.submit(() -> load(p, prefetchSize))));
+                        if (window.size() > n) {
+                            emit(window.poll(), reader, memReader).supply(c);
+                        }
+                    });
+                    while (!window.isEmpty()) {
+                        emit(window.poll(), reader, memReader).supply(c);
+                    }
+                } else {
+                    interleave(paths, n, pool, reader).supply(c);
+                }
+            } finally {
+                pool.shutdownNow();
+            }
+        };
+    }
+
+    private static <T> Seq<T> emit(Pair<Path, ForkJoinTask<byte[]>> pair, Function<Path, Seq<T>> reader,
+        Function<byte[], Seq<T>> memReader) {
+        byte[] bytes = pair.second.join();
+        return bytes != null ? memReader.apply(bytes) : reader.apply(pair.first);
+    }
+
+    private static <T> Seq<T> interleave(Seq<Path> paths, int n, ForkJoinPool pool, Function<Path, Seq<T>> reader) {
+        return c -> {
+            Semaphore permits = new Semaphore(n);
+            AtomicBoolean done = new AtomicBoolean();
+            AtomicBoolean stopped = new AtomicBoolean();
+            AtomicReference<Throwable> error = new AtomicReference<>();
+            try {
+                paths.tillStop(p -> {
+                    permits.acquireUninterruptibly();
+                    if (done.get()) {
+                        permits.release();
+                        throw Seq0.StopException.INSTANCE;
+                    }
+                    pool.execute(() -> {
+                        try {
+                            reader.apply(p).supply(t -> {
+                                if (done.get()) {
+                                    throw Seq0.StopException.INSTANCE;
+                                }
+                                try {
+                                    c.accept(t);
+                                } catch (Seq0.StopException e) {
+                                    stopped.set(true);
+                                    throw e;
+                                }
+                            });
+                        } catch (Seq0.StopException e) {
+                            done.set(true);
+                        } catch (Throwable e) {
+                            error.compareAndSet(null, e);
+                            done.set(true);
+                        } finally {
+                            permits.release();
+                        }
+                    });
+                });
+            } finally {
+                permits.acquireUninterruptibly(n);
+            }
+            Throwable e = error.get();
+            if (e instanceof RuntimeException) {
+                throw (RuntimeException)e;
+            }
+            if (e instanceof Error) {
+                throw (Error)e;
+            }
+            if (e != null) {
+                throw new RuntimeException(e);
+            }
+            if (stopped.get()) {
+                throw Seq0.StopException.INSTANCE;
+            }
+        };
+    }
+
+    /**
+     * Returns the (decompressed) content of a file, or null if it is too large to hold.
+     */
+    private static byte[] load(Path path, int prefetchSize) throws IOException {
+        if (Files.size(path) > prefetchSize) {
+            return null;
+        }
+        byte[] buf = new byte[(int)Math.max(Files.size(path), 1024)];
+        int n = 0;
+        try (InputStream is = Compression.open(path)) {
+            for (int k; (k = is.read(buf, n, buf.length - n)) >= 0; ) {
+                n += k;
+                if (n == buf.length) {
+                    if (n >= prefetchSize * 4) {
+                        return null;
+                    }
+                    buf = Arrays.copyOf(buf, n * 2);
+                }
+            }
+        }
+        return Arrays.copyOf(buf, n);
+    }
+}
@@ -0,0 +1,221 @@
+package com.github.wolray.seq;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * An open-addressing (linear probing) map from objects to primitive ints, for counting and summing
+ * per key: {@link #addTo} updates a value in place, with no boxing and no entry object. As a seq it
+ * supplies {@code (value, key)} pairs; {@link #forEachInt} visits entries without allocating.
+ * Iteration order is unspecified. A null key is allowed.
+ *
+ * @author wolray
+ */
+public class ObjIntSeqMap<K> implements Seq<IntPair<K>> {
+    private static final Object NULL = new Object();
+    private Object[] keys;
+    private int[] values;
+    private int size;
+    private int maxSize;
+
+    public ObjIntSeqMap() {
+        this(16);
+    }
+
+    public ObjIntSeqMap(int expectedSize) {
+        int cap = 4;
+        while (cap * 3 / 4 <= expectedSize) {
+            cap <<= 1;
+        }
+        allocate(cap);
+    }
+
+    private void allocate(int cap) {
+        keys = new Object[cap];
+        values = new int[cap];
+        maxSize = cap * 3 / 4;
+    }
+
+    private static int slot(Object key, int mask) {
+        int h = key.hashCode() * 0x9e3779b9;
+        return (h ^ h >>> 16) & mask;
+    }
+
+    private int find(Object key) {
+        Object k = key != null ? key : NULL;
+        int mask = keys.length - 1;
+        for (int i = slot(k, mask); ; i = i + 1 & mask) {
+            Object cur = keys[i];
+            if (cur == null) {
+                return ~i;
+            }
+            if (cur == k || cur.equals(k)) {
+                return i;
+            }
+        }
+    }
+
+    private void insert(int negSlot, K key, int value) {
+        int i = ~negSlot;
+        keys[i] = key != null ? key : NULL;
+        values[i] = value;
+        if (++size > maxSize) {
+            rehash();
+        }
+    }
+
+    private void rehash() {
+        Object[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(oldKeys.length << 1);
+        int mask = keys.length - 1;
+        for (int j = 0; j < oldKeys.length; j++) {
+            Object k = oldKeys[j];
+            if (k != null) {
+                int i = slot(k, mask);
+                while (keys[i] != null) {
+                    i = i + 1 & mask;
+                }
+                keys[i] = k;
+                values[i] = oldValues[j];
+            }
+        }
+    }
+
+    /**
+     * Adds {@code delta} to the value of {@code key}, from 0 if absent, and returns the new value.
+     */
+    public int addTo(K key, int delta) {
+        int i = find(key);
+        if (i < 0) {
+            insert(i, key, delta);
+            return delta;
+        }
+        return values[i] += delta;
+    }
+
+    public int get(Object key) {
+        return getOrDefault(key, 0);
+    }
+
+    public int getOrDefault(Object key, int defaultValue) {
+        int i = find(key);
+        return i >= 0 ? values[i] : defaultValue;
+    }
+
+    public boolean containsKey(Object key) {
+        return find(key) >= 0;
+    }
+
+    /**
+     * Returns the previous value, or 0 if absent.
+     */
+    public int put(K key, int value) {
+        int i = find(key);
+        if (i < 0) {
+            insert(i, key, value);
+            return 0;
+        }
+        int old = values[i];
+        values[i] = value;
+        return old;
+    }
+
+    /**
+     * Returns the removed value, or 0 if absent.
+     */
+    public int remove(Object key) {
+        int i = find(key);
+        if (i < 0) {
+            return 0;
+        }
+        int old = values[i];
+        int mask = keys.length - 1;
+        for (int j = i + 1 & mask; keys[j] != null; j = j + 1 & mask) {
+            int home = slot(keys[j], mask);
+            if ((j - home & mask) >= (j - i & mask)) {
+                keys[i] = keys[j];
+                values[i] = values[j];
+                i = j;
+            }
+        }
+        keys[i] = null;
+        values[i] = 0;
+        size--;
+        return old;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, null);
+        Arrays.fill(values, 0);
+        size = 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    public void forEachInt(ObjIntConsumer<K> consumer) {
+        Object[] ks = keys;
+        int[] vs = values;
+        for (int i = 0; i < ks.length; i++) {
+            Object k = ks[i];
+            if (k != null) {
+                consumer.accept(k != NULL ? (K)k : null, vs[i]);
+            }
+        }
+    }
+
+    @Override
+    public void supply(Consumer<IntPair<K>> consumer) {
+        forEachInt((k, v) -> consumer.accept(new IntPair<>(v, k)));
+    }
+
+    @Override
+    public int sizeOrDefault() {
+        return size;
+    }
+
+    public Seq<K> keys() {
+        return c -> forEachInt((k, v) -> c.accept(k));
+    }
+
+    public IntSeq values() {
+        return c -> forEachInt((k, v) -> c.accept(v));
+    }
+
+    public long sum() {
+        long[] sum = new long[1];
+        forEachInt((k, v) -> sum[0] += v);
+        return sum[0];
+    }
+
+    /**
+     * Boxes the entries into a {@link SeqMap}.
+     */
+    public SeqMap<K, Integer> toSeqMap() {
+        Map<K, Integer> map = new LinkedHashMap<>(size * 4 / 3 + 1);
+        forEachInt(map::put);
+        return SeqMap.of(map);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("{");
+        forEachInt((k, v) -> {
+            if (sb.length() > 1) {
+                sb.append(", ");
+            }
+            sb.append(k).append('=').append(v);
+        });
+        return sb.append('}').toString();
+    }
+}
@@ -0,0 +1,141 @@
+package com.github.wolray.seq;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.Consumer;
+
+/**
+ * An append-only list encoding its elements by a {@link Codec} into direct {@link ByteBuffer}
+ * segments, so that a large cache puts no objects on the heap except the segment handles
+ * and, for variable-width codecs, one {@code long} offset per element.
+ *
+ * @author wolray
+ */
+public class OffHeapList<T> implements AdderList<T> {
+    public static final int DEFAULT_SEGMENT_SIZE = 1 << 20;
+    private transient final Codec<T> codec;
+    private transient final int fixedSize;
+    private transient final int segmentSize;
+    private transient ByteBuffer[] segments = new ByteBuffer[4];
+    private transient int segmentCount;
+    private transient ByteBuffer cur;
+    private transient long[] offsets;
+    private transient int size;
+
+    public OffHeapList(Codec<T> codec) {
+        this(codec, DEFAULT_SEGMENT_SIZE);
+    }
+
+    public OffHeapList(Codec<T> codec, int segmentSize) {
+        this.codec = codec;
+        fixedSize = codec.fixedSize();
+        this.segmentSize = fixedSize > 0 ? Math.max(segmentSize / fixedSize, 1) * fixedSize : segmentSize;
+        if (fixedSize <= 0) {
+            offsets = new long[16];
+        }
+    }
+
+    @Override
+    public void supply(Consumer<T> consumer) {
+        for (int k = 0; k < segmentCount; k++) {
+            ByteBuffer buf = segments[k].duplicate();
+            buf.flip();
+            while (buf.hasRemaining()) {
+                consumer.accept(codec.read(buf));
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return join();
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return new Iterator<T>() {
+            int k = -1;
+            ByteBuffer buf;
+
+            @Override
+            public boolean hasNext() {
+                while (buf == null || !buf.hasRemaining()) {
+                    if (k + 1 >= segmentCount) {
+                        return false;
+                    }
+                    buf = segments[++k].duplicate();
+                    buf.flip();
+                }
+                return true;
+            }
+
+            @Override
+            public T next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return codec.read(buf);
+            }
+        };
+    }
+
+    @Override
+    public boolean add(T t) {
+        int n = codec.sizeOf(t);
+        if (cur == null || cur.remaining() < n) {
+            nextSegment(n);
+        }
+        if (offsets != null) {
+            if (size == offsets.length) {
+                offsets = Arrays.copyOf(offsets, size + (size >> 1));
+            }
+            offsets[size] = (long)(segmentCount - 1) << 32 | cur.position();
+        }
+        codec.write(cur, t);
+        size++;
+        return true;
+    }
+
+    private void nextSegment(int n) {
+        if (segmentCount == segments.length) {
+            segments = Arrays.copyOf(segments, segmentCount * 2);
+        }
+        cur = segments[segmentCount++] = ByteBuffer.allocateDirect(Math.max(segmentSize, n));
+    }
+
+    @Override
+    public void clear() {
+        segments = new ByteBuffer[4];
+        segmentCount = 0;
+        cur = null;
+        if (offsets != null) {
+            offsets = new long[16];
+        }
+        size = 0;
+    }
+
+    @Override
+    public T get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException(String.format("%d, %d", index, size));
+        }
+        ByteBuffer buf;
+        if (offsets != null) {
+            long offset = offsets[index];
+            buf = segments[(int)(offset >>> 32)].duplicate();
+            buf.position((int)offset);
+        } else {
+            int perSegment = segmentSize / fixedSize;
+            buf = segments[index / perSegment].duplicate();
+            buf.position(index % perSegment * fixedSize);
+        }
+        return codec.read(buf);
+    }
+}
@@ -8,7 +8,7 @@ import java.util.function.Consumer;
 /**
  * @author wolray
  */
-public abstract class PickItr<T> implements Seq<T>, Iterator<T> {
+public abstract class PickItr<T> implements Seq<T>, CloseableItr<T> {
     private T next;
     private State state = State.Unset;
 
@@ -36,6 +36,11 @@ public abstract class PickItr<T> implements Seq<T>, Iterator<T> {
         forEachRemaining(consumer);
     }
 
+    @Override
+    public CloseableItr<T> iterator(int bufferSize) {
+        return this;
+    }
+
     @Override
     public boolean hasNext() {
         if (state == State.Unset) {
@@ -60,6 +65,14 @@ public abstract class PickItr<T> implements Seq<T>, Iterator<T> {
         throw new NoSuchElementException();
     }
 
+    /**
+     * Drops any element cached by {@link #hasNext()} and reports the iterator exhausted from now on.
+     */
+    void finish() {
+        next = null;
+        state = State.Done;
+    }
+
     enum State {
         Unset,
         Cached,
@@ -20,6 +20,8 @@ public abstract class SafeSeq<T> implements Seq<T> {
             public void supply(Consumer<T> consumer) {
                 try {
                     seq.accept(consumer);
+                } catch (StopException e) {
+                    throw e;
                 } catch (Exception e) {
                     if (errorType != null && errorType.isAssignableFrom(e.getClass())) {
                         return;
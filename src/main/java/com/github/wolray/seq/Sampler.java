@@ -0,0 +1,69 @@
+package com.github.wolray.seq;
+
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Reservoir sampling by Li's Algorithm L: after the reservoir is full, the gap to the next element
+ * to keep is drawn from its distribution directly, so an element that is skipped costs a counter
+ * increment and no random number.
+ *
+ * @author wolray
+ */
+final class Sampler {
+    private final int n;
+    private final Random random;
+    private double w;
+    private long count;
+    private long next;
+
+    Sampler(int n, Random random) {
+        this.n = Math.max(n, 0);
+        this.random = random != null ? random : ThreadLocalRandom.current();
+        if (this.n > 0) {
+            w = Math.exp(Math.log(uniform(this.random)) / this.n);
+            next = add(this.n, gap(this.random, w));
+        } else {
+            next = Long.MAX_VALUE;
+        }
+    }
+
+    /**
+     * Returns the reservoir slot the current element goes to, or -1 if it is skipped.
+     */
+    int offer() {
+        long i = count++;
+        if (i < n) {
+            return (int)i;
+        }
+        if (i != next) {
+            return -1;
+        }
+        w *= Math.exp(Math.log(uniform(random)) / n);
+        next = add(next + 1, gap(random, w));
+        return random.nextInt(n);
+    }
+
+    private static long add(long a, long b) {
+        return b < Long.MAX_VALUE - a ? a + b : Long.MAX_VALUE;
+    }
+
+    private static double uniform(Random random) {
+        return 1 - random.nextDouble();
+    }
+
+    /**
+     * The number of elements to skip before the next one kept, when each is kept with probability
+     * {@code p}, drawn from the geometric distribution.
+     */
+    static long gap(Random random, double p) {
+        if (p >= 1) {
+            return 0;
+        }
+        if (p <= 0) {
+            return Long.MAX_VALUE;
+        }
+        double g = Math.floor(Math.log(uniform(random)) / Math.log1p(-p));
+        return g < Long.MAX_VALUE ? (long)g : Long.MAX_VALUE;
+    }
+}
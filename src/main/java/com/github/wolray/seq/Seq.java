@@ -3,6 +3,7 @@ package com.github.wolray.seq;
 import java.util.*;
 import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.*;
 
@@ -173,7 +174,16 @@ public interface Seq<T> extends Seq0<Consumer<T>> {
         if (this instanceof BackedSeq || this instanceof AdderList) {
             return this;
         }
-        return toBatchList(batchSize);
+        BatchList<T> ts = toBatchList(batchSize);
+        ts.trimToSize();
+        return ts;
+    }
+
+    default Seq<T> cache(Codec<T> codec) {
+        if (this instanceof BackedSeq || this instanceof AdderList) {
+            return this;
+        }
+        return collect(new OffHeapList<>(codec));
     }
 
     default Seq<T> cacheBy(Cache<T> cache) {
@@ -181,15 +191,11 @@ public interface Seq<T> extends Seq0<Consumer<T>> {
     }
 
     default Seq<T> cacheBy(int batchSize, Cache<T> cache) {
-        if (cache.exists()) {
-            return cache.read();
-        } else {
-            BatchList<T> ts = toBatchList(batchSize);
-            if (ts.isNotEmpty()) {
-                cache.write(ts);
-            }
-            return ts;
-        }
+        return cache.load(this, batchSize);
+    }
+
+    default <K> Seq<T> cacheBy(CacheRegistry<K, T> registry, K key) {
+        return registry.get(key, () -> this);
     }
 
     default Seq<SeqList<T>> chunked(int size) {
@@ -234,6 +240,13 @@ public interface Seq<T> extends Seq0<Consumer<T>> {
         return sumInt(t -> predicate.test(t) ? 1 : 0);
     }
 
+    /**
+     * Counts elements per key into an {@link ObjIntSeqMap}, with no boxing per element.
+     */
+    default <K> ObjIntSeqMap<K> countBy(Function<T, K> function) {
+        return feed(new ObjIntSeqMap<>(), (m, t) -> m.addTo(function.apply(t), 1));
+    }
+
     default int countNot(Predicate<T> predicate) {
         return count(predicate.negate());
     }
@@ -305,8 +318,47 @@ public interface Seq<T> extends Seq0<Consumer<T>> {
         });
     }
 
+    /**
+     * A collection other than a set is hashed at the start of each traversal, unless it is tiny.
+     */
     default Seq<T> filterIn(Collection<T> collection) {
-        return filter(collection::contains);
+        return c -> {
+            Collection<T> index = SeqUtil.index(collection);
+            supply(t -> {
+                if (index.contains(t)) {
+                    c.accept(t);
+                }
+            });
+        };
+    }
+
+    default Seq<T> filterIn(SeqCollection<T, ?> collection) {
+        return filterIn((Collection<T>)collection);
+    }
+
+    default Seq<T> filterIn(AdderList<T> list) {
+        return filterIn((Collection<T>)list);
+    }
+
+    /**
+     * {@code seq} is hashed into a set at the start of each traversal.
+     */
+    default Seq<T> filterIn(Seq<T> seq) {
+        return c -> {
+            Set<T> set = seq.toSet();
+            supply(t -> {
+                if (set.contains(t)) {
+                    c.accept(t);
+                }
+            });
+        };
+    }
+
+    /**
+     * Approximate: also keeps elements that are false positives of the filter.
+     */
+    default Seq<T> filterIn(BloomFilter<T> filter) {
+        return filter(filter);
     }
 
     default Seq<T> filterIn(Map<T, ?> map) {
@@ -326,7 +378,40 @@ public interface Seq<T> extends Seq0<Consumer<T>> {
     }
 
     default Seq<T> filterNotIn(Collection<T> collection) {
-        return filterNot(collection::contains);
+        return c -> {
+            Collection<T> index = SeqUtil.index(collection);
+            supply(t -> {
+                if (!index.contains(t)) {
+                    c.accept(t);
+                }
+            });
+        };
+    }
+
+    default Seq<T> filterNotIn(SeqCollection<T, ?> collection) {
+        return filterNotIn((Collection<T>)collection);
+    }
+
+    default Seq<T> filterNotIn(AdderList<T> list) {
+        return filterNotIn((Collection<T>)list);
+    }
+
+    default Seq<T> filterNotIn(Seq<T> seq) {
+        return c -> {
+            Set<T> set = seq.toSet();
+            supply(t -> {
+                if (!set.contains(t)) {
+                    c.accept(t);
+                }
+            });
+        };
+    }
+
+    /**
+     * Approximate: also drops elements that are false positives of the filter.
+     */
+    default Seq<T> filterNotIn(BloomFilter<T> filter) {
+        return filterNot(filter);
     }
 
     default Seq<T> filterNotIn(Map<T, ?> map) {
@@ -455,9 +540,62 @@ public interface Seq<T> extends Seq0<Consumer<T>> {
         Function<K, BatchList<T>> mappingFunction = k -> new BatchList<>();
         Map<K, BatchList<T>> map = feed(new HashMap<>(), (m, t) ->
             m.computeIfAbsent(kFunction.apply(t), mappingFunction).add(t));
+        map.values().forEach(BatchList::trimToSize);
         return new SeqMap<>(map);
     }
 
+    /**
+     * Same as {@link #groupBy(Function)} for inputs too large for memory: once the elements held pass
+     * {@code maxBytes} as encoded by {@code codec}, they are spilled to hash-partitioned temp files and
+     * grouped one partition at a time. Groups are supplied lazily, on every traversal.
+     */
+    default <K> Seq<Pair<K, BatchList<T>>> groupBySpilling(Function<T, K> kFunction, Codec<T> codec, long maxBytes) {
+        return SpillingGroupBy.of(this, kFunction, codec, maxBytes);
+    }
+
+    /**
+     * Same as {@link #groupBy(Function)} with primitive int keys, into an {@link IntObjSeqMap}.
+     */
+    default IntObjSeqMap<BatchList<T>> groupByInt(ToIntFunction<T> kFunction) {
+        IntFunction<BatchList<T>> mappingFunction = k -> new BatchList<>();
+        IntObjSeqMap<BatchList<T>> map = feed(new IntObjSeqMap<>(), (m, t) ->
+            m.computeIfAbsent(kFunction.applyAsInt(t), mappingFunction).add(t));
+        map.values().supply(BatchList::trimToSize);
+        return map;
+    }
+
+    default <V> IntObjSeqMap<V> groupByInt(ToIntFunction<T> kFunction, Function<Seq<T>, V> vFunction) {
+        return groupByInt(kFunction).replaceValue(vFunction::apply);
+    }
+
+    default LongObjSeqMap<BatchList<T>> groupByLong(ToLongFunction<T> kFunction) {
+        LongFunction<BatchList<T>> mappingFunction = k -> new BatchList<>();
+        LongObjSeqMap<BatchList<T>> map = feed(new LongObjSeqMap<>(), (m, t) ->
+            m.computeIfAbsent(kFunction.applyAsLong(t), mappingFunction).add(t));
+        map.values().supply(BatchList::trimToSize);
+        return map;
+    }
+
+    default <V> LongObjSeqMap<V> groupByLong(ToLongFunction<T> kFunction, Function<Seq<T>, V> vFunction) {
+        return groupByLong(kFunction).replaceValue(vFunction::apply);
+    }
+
+    /**
+     * Approximates the {@code k} most frequent keys with a {@link HeavyHitters} sketch of {@code 4 * k}
+     * counters, holding no other keys. Read them by {@code top()}.
+     */
+    default <K> HeavyHitters<K> heavyHitters(Function<T, K> function, int k) {
+        return feed(new HeavyHitters<>(k), (h, t) -> h.add(function.apply(t)));
+    }
+
+    default <K> HeavyHitters<K> heavyHitters(Function<T, K> function, int k, int capacity) {
+        return feed(new HeavyHitters<>(k, capacity), (h, t) -> h.add(function.apply(t)));
+    }
+
+    default CloseableItr<T> iterator(int bufferSize) {
+        return new AsyncItr<>(this, bufferSize);
+    }
+
     default String join(String sep) {
         return join(sep, String::valueOf);
     }
@@ -537,6 +675,25 @@ public interface Seq<T> extends Seq0<Consumer<T>> {
         return c -> supply(t -> c.accept(function.applyAsInt(t)));
     }
 
+    default LongSeq mapToLong(ToLongFunction<T> function) {
+        return c -> supply(t -> c.accept(function.applyAsLong(t)));
+    }
+
+    default DoubleSeq mapToDouble(ToDoubleFunction<T> function) {
+        return c -> supply(t -> c.accept(function.applyAsDouble(t)));
+    }
+
+    default Seq<T> memoize() {
+        return memoize(BatchList.DEFAULT_BATCH_SIZE);
+    }
+
+    default Seq<T> memoize(int bufferSize) {
+        if (this instanceof BackedSeq || this instanceof AdderList || this instanceof MemoSeq) {
+            return this;
+        }
+        return new MemoSeq<>(this, bufferSize);
+    }
+
     default <V extends Comparable<V>> Pair<T, V> max(Function<T, V> function) {
         return feed(new Pair<>(null, null), (p, t) -> {
             V v = function.apply(t);
@@ -655,8 +812,11 @@ public interface Seq<T> extends Seq0<Consumer<T>> {
     }
     
     default Pair<BatchList<T>, BatchList<T>> partition(Predicate<T> predicate) {
-        return feed(new Pair<>(new BatchList<>(), new BatchList<>()), (p, t) ->
+        Pair<BatchList<T>, BatchList<T>> pair = feed(new Pair<>(new BatchList<>(), new BatchList<>()), (p, t) ->
             (predicate.test(t) ? p.first : p.second).add(t));
+        pair.first.trimToSize();
+        pair.second.trimToSize();
+        return pair;
     }
 
     default void printAll(String sep) {
@@ -685,6 +845,56 @@ public interface Seq<T> extends Seq0<Consumer<T>> {
         });
     }
 
+    default SeqList<T> sample(int n) {
+        return sample(n, null);
+    }
+
+    /**
+     * A uniform random sample of up to {@code n} elements, by reservoir sampling in one pass.
+     * A null {@code random} means the current thread's {@link ThreadLocalRandom}.
+     */
+    default SeqList<T> sample(int n, Random random) {
+        Sampler sampler = new Sampler(n, random);
+        ArrayList<T> list = new ArrayList<>(Math.max(Math.min(n, 1 << 16), 0));
+        supply(t -> {
+            int i = sampler.offer();
+            if (i == list.size()) {
+                list.add(t);
+            } else if (i >= 0) {
+                list.set(i, t);
+            }
+        });
+        return new SeqList<>(list);
+    }
+
+    default Seq<T> sampleFraction(double p) {
+        return sampleFraction(p, null);
+    }
+
+    /**
+     * Keeps each element with probability {@code p}, drawing only the gaps between kept elements.
+     * A null {@code random} means the current thread's {@link ThreadLocalRandom}.
+     */
+    default Seq<T> sampleFraction(double p, Random random) {
+        return c -> {
+            Random r = random != null ? random : ThreadLocalRandom.current();
+            long[] skip = {Sampler.gap(r, p)};
+            supply(t -> {
+                if (skip[0]-- == 0) {
+                    c.accept(t);
+                    skip[0] = Sampler.gap(r, p);
+                }
+            });
+        };
+    }
+
+    default Seq<T> share() {
+        if (this instanceof BackedSeq || this instanceof AdderList || this instanceof SharedSeq) {
+            return this;
+        }
+        return new SharedSeq<>(this);
+    }
+
     default int sizeOrDefault() {
         return 10;
     }
@@ -727,6 +937,14 @@ public interface Seq<T> extends Seq0<Consumer<T>> {
         return foldLong(0, (i, t) -> i + function.applyAsLong(t));
     }
 
+    default <K> ObjIntSeqMap<K> sumIntBy(Function<T, K> kFunction, ToIntFunction<T> vFunction) {
+        return feed(new ObjIntSeqMap<>(), (m, t) -> m.addTo(kFunction.apply(t), vFunction.applyAsInt(t)));
+    }
+
+    default <K> ObjLongSeqMap<K> sumLongBy(Function<T, K> kFunction, ToLongFunction<T> vFunction) {
+        return feed(new ObjLongSeqMap<>(), (m, t) -> m.addTo(kFunction.apply(t), vFunction.applyAsLong(t)));
+    }
+
     default Seq<T> take(int n) {
         return c -> foldIndexed((i, t) -> {
             if (i < n) {
@@ -771,6 +989,13 @@ public interface Seq<T> extends Seq0<Consumer<T>> {
         return takeWhile(t -> t, Objects::equals);
     }
 
+    /**
+     * Starts a {@link Tee} to compute several terminal operations in one traversal.
+     */
+    default Tee<T> tee() {
+        return Tee.of(this);
+    }
+
     default int[] toIntArray(ToIntFunction<T> function) {
         BatchList<T> ts = toBatchList();
         int[] a = new int[ts.size()];
@@ -894,6 +1119,20 @@ public interface Seq<T> extends Seq0<Consumer<T>> {
         });
     }
 
+    default <E> BiSeq<T, E> zip(Seq<E> seq, int bufferSize) {
+        return c -> {
+            try (CloseableItr<E> itr = seq.iterator(bufferSize)) {
+                feed(itr, (it, t) -> {
+                    if (it.hasNext()) {
+                        c.accept(t, it.next());
+                    } else {
+                        stop();
+                    }
+                });
+            }
+        };
+    }
+
     class Empty {
         static Seq<Object> emptySeq = c -> {};
         static Consumer<Object> nothing = t -> {};
@@ -926,4 +1165,8 @@ public interface Seq<T> extends Seq0<Consumer<T>> {
     interface IndexObjPredicate<T> {
         boolean test(int i, T t);
     }
+
+    interface LongObjConsumer<T> {
+        void accept(long l, T t);
+    }
 }
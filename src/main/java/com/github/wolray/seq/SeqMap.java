@@ -4,6 +4,7 @@ import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.BiFunction;
 import java.util.function.Function;
+import java.util.function.Predicate;
 
 /**
  * @author wolray
@@ -74,6 +75,38 @@ public class SeqMap<K, V> extends BackedSeq<Map.Entry<K, V>, Set<Map.Entry<K, V>
         return new SeqMap<>(toMap(newMap(map), Map.Entry::getKey, e -> function.apply(e.getValue())));
     }
 
+    /**
+     * A read-only view with each value mapped when it is read, unlike {@link #mapByValue} which copies
+     * the whole map. See {@link #materialize()}.
+     */
+    public <E> SeqMap<K, E> mapValuesView(BiFunction<K, V, E> function) {
+        return new SeqMap<>(MapView.map(map, function));
+    }
+
+    public <E> SeqMap<K, E> mapValuesView(Function<V, E> function) {
+        return mapValuesView((k, v) -> function.apply(v));
+    }
+
+    /**
+     * A read-only view of the entries whose key matches. Its {@code size()} is a pass over this map.
+     */
+    public SeqMap<K, V> filterKeysView(Predicate<K> predicate) {
+        return new SeqMap<>(MapView.filter(map, (k, v) -> predicate.test(k)));
+    }
+
+    public SeqMap<K, V> filterValuesView(Predicate<V> predicate) {
+        return new SeqMap<>(MapView.filter(map, (k, v) -> predicate.test(v)));
+    }
+
+    /**
+     * Copies this map, or computes a view once, into a new map of the same kind as the source.
+     */
+    public SeqMap<K, V> materialize() {
+        Map<K, V> res = newMap(map instanceof MapView ? ((MapView<?, ?, ?>)map).origin : map);
+        map.forEach(res::put);
+        return new SeqMap<>(res);
+    }
+
     @SuppressWarnings("unchecked")
     public <E> SeqMap<K, E> replaceValue(BiFunction<K, V, E> function) {
         SeqMap<K, Object> map = (SeqMap<K, Object>)this;
@@ -88,6 +121,11 @@ public class SeqMap<K, V> extends BackedSeq<Map.Entry<K, V>, Set<Map.Entry<K, V>
         return (SeqMap<K, E>)map;
     }
 
+    @Override
+    public int sizeOrDefault() {
+        return map instanceof MapView ? ((MapView<?, ?, ?>)map).source.size() : map.size();
+    }
+
     @Override
     public String toString() {
         return map.toString();
@@ -2,8 +2,21 @@ package com.github.wolray.seq;
 
 import java.io.*;
 import java.net.URL;
-import java.nio.file.Files;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
 
 /**
  * @author wolray
@@ -15,6 +28,64 @@ public interface SeqReader<S, T> {
         return Text.INSTANCE;
     }
 
+    static Lines lines() {
+        return Lines.UTF_8;
+    }
+
+    static Lines lines(Charset charset) {
+        return lines(charset, LineScanner.BUFFER_SIZE);
+    }
+
+    static Lines lines(Charset charset, int bufferSize) {
+        return new Lines(charset, bufferSize);
+    }
+
+    static Ndjson ndjson(String... paths) {
+        return new Ndjson(paths, LineScanner.BUFFER_SIZE);
+    }
+
+    /**
+     * Regular files in the tree of {@code root}, crawled in parallel and supplied in path order.
+     */
+    static Seq<Path> files(Path root) {
+        return MultiFileReader.files(root, null);
+    }
+
+    /**
+     * Same as {@link #files(Path)}, keeping the files whose path relative to {@code root} matches
+     * {@code glob}, such as {@code "**.log"}.
+     */
+    static Seq<Path> files(Path root, String glob) {
+        return MultiFileReader.files(root, glob);
+    }
+
+    static <T> Ch<T> binary(Codec<T> codec) {
+        return source -> c -> {
+            try (FileCache.Input in = new FileCache.Input(source.get(), null)) {
+                in.records(codec.fixedSize(), codec, c);
+            } catch (Seq0.StopException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        };
+    }
+
+    /**
+     * Fixed-size little-endian records of {@code recordSize} bytes.
+     */
+    static Records records(int recordSize) {
+        return new Records(recordSize, ByteOrder.LITTLE_ENDIAN, 0);
+    }
+
+    static Csv csv() {
+        return Csv.CSV;
+    }
+
+    static Csv tsv() {
+        return Csv.TSV;
+    }
+
     default SafeSeq<T> read(S source) {
         return SafeSeq.of(c -> toSeq(source).supply(c));
     }
@@ -30,6 +101,401 @@ public interface SeqReader<S, T> {
                     while ((s = reader.readLine()) != null) {
                         c.accept(s);
                     }
+                } catch (Seq0.StopException e) {
+                    throw e;
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            };
+        }
+    }
+
+    final class Lines implements Ch<Line> {
+        static final Lines UTF_8 = new Lines(StandardCharsets.UTF_8, LineScanner.BUFFER_SIZE);
+        final Charset charset;
+        final int bufferSize;
+
+        Lines(Charset charset, int bufferSize) {
+            this.charset = charset;
+            this.bufferSize = bufferSize;
+        }
+
+        @Override
+        public Seq<Line> toSeq(ChannelSource source) {
+            return c -> {
+                try (ReadableByteChannel ch = source.get()) {
+                    Line line = new Line(charset);
+                    LineScanner.scan(ch, bufferSize, (buf, from, to) -> c.accept(line.set(buf, from, to)));
+                } catch (Seq0.StopException e) {
+                    throw e;
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            };
+        }
+
+        public ParallelLines parallel(boolean ordered) {
+            return parallel(ordered, Runtime.getRuntime().availableProcessors(), ParallelLines.DEFAULT_SPLIT_SIZE);
+        }
+
+        public ParallelLines parallel(boolean ordered, int parallelism, long splitSize) {
+            return new ParallelLines(this, ordered, parallelism, splitSize);
+        }
+    }
+
+    /**
+     * Reads one file as newline-aligned byte ranges, each scanned on the common pool by positional reads
+     * on a shared {@link FileChannel}, with at most {@code parallelism} ranges in flight. Ordered output
+     * buffers each range and emits them in file order on the calling thread; unordered output accepts
+     * lines straight from the workers, like {@link Seq#parallel()}.
+     */
+    final class ParallelLines implements SeqReader<Path, String> {
+        public static final long DEFAULT_SPLIT_SIZE = 1L << 25;
+        final Lines lines;
+        final boolean ordered;
+        final int parallelism;
+        final long splitSize;
+
+        ParallelLines(Lines lines, boolean ordered, int parallelism, long splitSize) {
+            this.lines = lines;
+            this.ordered = ordered;
+            this.parallelism = Math.max(parallelism, 1);
+            this.splitSize = Math.max(splitSize, 1);
+        }
+
+        public SafeSeq<String> read(String file) {
+            return read(Paths.get(file));
+        }
+
+        public SafeSeq<String> read(File file) {
+            return read(file.toPath());
+        }
+
+        @Override
+        public Seq<String> toSeq(Path path) {
+            return c -> {
+                try (ReadableByteChannel ch = Compression.openChannel(path)) {
+                    if (!(ch instanceof FileChannel)) {
+                        Line line = new Line(lines.charset);
+                        LineScanner.scan(ch, lines.bufferSize, (buf, from, to) -> c.accept(line.set(buf, from, to).toString()));
+                        return;
+                    }
+                    FileChannel fc = (FileChannel)ch;
+                    long n = (fc.size() + splitSize - 1) / splitSize;
+                    AtomicBoolean stopped = new AtomicBoolean();
+                    ArrayDeque<ForkJoinTask<BatchList<String>>> window = new ArrayDeque<>();
+                    long next = 0;
+                    try {
+                        for (; next < n && window.size() < parallelism; next++) {
+                            window.add(submit(fc, next, stopped, c));
+                        }
+                        while (!window.isEmpty()) {
+                            BatchList<String> ls = window.poll().join();
+                            if (next < n) {
+                                window.add(submit(fc, next++, stopped, c));
+                            }
+                            if (ls != null) {
+                                ls.supply(c);
+                            }
+                        }
+                    } finally {
+                        stopped.set(true);
+                        window.forEach(ForkJoinTask::quietlyJoin);
+                    }
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+            };
+        }
+
+        private ForkJoinTask<BatchList<String>> submit(FileChannel fc, long index, AtomicBoolean stopped, Consumer<String> c) {
+            return ForkJoinPool.commonPool().submit(() -> {
+                BatchList<String> ls = ordered ? new BatchList<>() : null;
+                Consumer<String> target = ordered ? ls::add : c;
+                Line line = new Line(lines.charset);
+                long start = index * splitSize;
+                int bufferSize = (int)Math.min(lines.bufferSize, splitSize + 1);
+                LineScanner.scan(fc, start, start + splitSize, bufferSize, (buf, from, to) -> {
+                    if (stopped.get()) {
+                        throw Seq0.StopException.INSTANCE;
+                    }
+                    target.accept(line.set(buf, from, to).toString());
+                });
+                return ls;
+            });
+        }
+    }
+
+    /**
+     * Reads JSON Lines into one reused {@link JsonRow} holding just the requested field paths.
+     * Blank lines are skipped.
+     */
+    final class Ndjson implements Ch<JsonRow> {
+        final String[] paths;
+        final int bufferSize;
+
+        Ndjson(String[] paths, int bufferSize) {
+            this.paths = paths.clone();
+            this.bufferSize = bufferSize;
+        }
+
+        public Ndjson bufferSize(int bufferSize) {
+            return new Ndjson(paths, bufferSize);
+        }
+
+        @Override
+        public Seq<JsonRow> toSeq(ChannelSource source) {
+            return c -> {
+                try (ReadableByteChannel ch = source.get()) {
+                    JsonRow row = new JsonRow(paths);
+                    LineScanner.scan(ch, bufferSize, (buf, from, to) -> {
+                        if (row.set(buf, from, to)) {
+                            c.accept(row);
+                        }
+                    });
+                } catch (Seq0.StopException e) {
+                    throw e;
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            };
+        }
+    }
+
+    /**
+     * Reads fixed-size binary records from a buffer or a memory-mapped file, either through one reused
+     * {@link BinaryRow} or as a primitive column of the field at a given offset, with no allocation per
+     * record. Files are mapped in record-aligned segments of up to 1GB. Settings return copies.
+     */
+    final class Records implements SeqReader<ByteBuffer, BinaryRow> {
+        static final int SEGMENT_SIZE = 1 << 30;
+        final int size;
+        final ByteOrder order;
+        final long skip;
+
+        Records(int size, ByteOrder order, long skip) {
+            if (size <= 0 || size > SEGMENT_SIZE) {
+                throw new IllegalArgumentException("record size: " + size);
+            }
+            this.size = size;
+            this.order = order;
+            this.skip = skip;
+        }
+
+        public Records order(ByteOrder order) {
+            return new Records(size, order, skip);
+        }
+
+        /**
+         * Skips a header of {@code bytes} at the start of every source.
+         */
+        public Records skip(long bytes) {
+            return new Records(size, order, bytes);
+        }
+
+        @Override
+        public Seq<BinaryRow> toSeq(ByteBuffer buffer) {
+            return rows(segments(buffer));
+        }
+
+        public SafeSeq<BinaryRow> read(String file) {
+            return read(Paths.get(file));
+        }
+
+        public SafeSeq<BinaryRow> read(File file) {
+            return read(file.toPath());
+        }
+
+        public SafeSeq<BinaryRow> read(Path path) {
+            return SafeSeq.of(rows(segments(path))::supply);
+        }
+
+        public IntSeq ints(int offset, ByteBuffer buffer) {
+            return ints(offset, segments(buffer));
+        }
+
+        public IntSeq ints(int offset, Path path) {
+            return ints(offset, segments(path));
+        }
+
+        public LongSeq longs(int offset, ByteBuffer buffer) {
+            return longs(offset, segments(buffer));
+        }
+
+        public LongSeq longs(int offset, Path path) {
+            return longs(offset, segments(path));
+        }
+
+        public DoubleSeq doubles(int offset, ByteBuffer buffer) {
+            return doubles(offset, segments(buffer));
+        }
+
+        public DoubleSeq doubles(int offset, Path path) {
+            return doubles(offset, segments(path));
+        }
+
+        private Seq<BinaryRow> rows(Seq<ByteBuffer> segments) {
+            return c -> {
+                BinaryRow row = new BinaryRow(size);
+                segments.supply(b -> {
+                    for (int p = b.position(), end = b.limit(); p < end; p += size) {
+                        c.accept(row.set(b, p));
+                    }
+                });
+            };
+        }
+
+        private IntSeq ints(int offset, Seq<ByteBuffer> segments) {
+            check(offset, 4);
+            return c -> segments.supply(b -> {
+                for (int p = b.position() + offset, end = b.limit(); p < end; p += size) {
+                    c.accept(b.getInt(p));
+                }
+            });
+        }
+
+        private LongSeq longs(int offset, Seq<ByteBuffer> segments) {
+            check(offset, 8);
+            return c -> segments.supply(b -> {
+                for (int p = b.position() + offset, end = b.limit(); p < end; p += size) {
+                    c.accept(b.getLong(p));
+                }
+            });
+        }
+
+        private DoubleSeq doubles(int offset, Seq<ByteBuffer> segments) {
+            check(offset, 8);
+            return c -> segments.supply(b -> {
+                for (int p = b.position() + offset, end = b.limit(); p < end; p += size) {
+                    c.accept(b.getDouble(p));
+                }
+            });
+        }
+
+        private void check(int offset, int width) {
+            if (offset < 0 || offset + width > size) {
+                throw new IndexOutOfBoundsException("offset " + offset + " in record of " + size + " bytes");
+            }
+        }
+
+        private Seq<ByteBuffer> segments(ByteBuffer buffer) {
+            return c -> {
+                ByteBuffer b = buffer.duplicate().order(order);
+                if (skip > b.remaining() || (b.remaining() - skip) % size != 0) {
+                    throw new IllegalArgumentException("partial record in buffer of " + b.remaining() + " bytes");
+                }
+                b.position(b.position() + (int)skip);
+                c.accept(b);
+            };
+        }
+
+        private Seq<ByteBuffer> segments(Path path) {
+            return c -> {
+                try (FileChannel fc = FileChannel.open(path, StandardOpenOption.READ)) {
+                    long end = fc.size(), step = (long)(SEGMENT_SIZE / size) * size;
+                    if (skip > end || (end - skip) % size != 0) {
+                        throw new EOFException(String.valueOf(path));
+                    }
+                    for (long p = skip; p < end; p += step) {
+                        c.accept(fc.map(FileChannel.MapMode.READ_ONLY, p, Math.min(step, end - p)).order(order));
+                    }
+                } catch (Seq0.StopException e) {
+                    throw e;
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+            };
+        }
+    }
+
+    /**
+     * Reads delimited records with RFC 4180 quoting (quoted fields may hold delimiters, newlines and
+     * doubled quotes) into one reused {@link CsvRow}. Blank lines are skipped. Settings return copies.
+     */
+    final class Csv implements Ch<CsvRow> {
+        static final Csv CSV = new Csv((byte)',');
+        static final Csv TSV = new Csv((byte)'\t');
+        byte delimiter;
+        byte quote = '"';
+        boolean header;
+        int[] columns;
+        String[] names;
+        Charset charset = StandardCharsets.UTF_8;
+        int bufferSize = LineScanner.BUFFER_SIZE;
+
+        Csv(byte delimiter) {
+            this.delimiter = delimiter;
+        }
+
+        private Csv copy() {
+            Csv csv = new Csv(delimiter);
+            csv.quote = quote;
+            csv.header = header;
+            csv.columns = columns;
+            csv.names = names;
+            csv.charset = charset;
+            csv.bufferSize = bufferSize;
+            return csv;
+        }
+
+        public Csv delimiter(char delimiter) {
+            Csv csv = copy();
+            csv.delimiter = (byte)delimiter;
+            return csv;
+        }
+
+        public Csv quote(char quote) {
+            Csv csv = copy();
+            csv.quote = (byte)quote;
+            return csv;
+        }
+
+        public Csv charset(Charset charset) {
+            Csv csv = copy();
+            csv.charset = charset;
+            return csv;
+        }
+
+        public Csv bufferSize(int bufferSize) {
+            Csv csv = copy();
+            csv.bufferSize = Math.max(bufferSize, 16);
+            return csv;
+        }
+
+        /**
+         * Skips the first record.
+         */
+        public Csv withHeader() {
+            Csv csv = copy();
+            csv.header = true;
+            return csv;
+        }
+
+        public Csv select(int... columns) {
+            Csv csv = copy();
+            csv.columns = columns.clone();
+            csv.names = null;
+            return csv;
+        }
+
+        /**
+         * Selects columns by the names in the header, which implies {@link #withHeader()}.
+         */
+        public Csv select(String... names) {
+            Csv csv = copy();
+            csv.header = true;
+            csv.columns = null;
+            csv.names = names.clone();
+            return csv;
+        }
+
+        @Override
+        public Seq<CsvRow> toSeq(ChannelSource source) {
+            return c -> {
+                try (ReadableByteChannel ch = source.get()) {
+                    new CsvRow(this).scan(ch, c);
+                } catch (Seq0.StopException e) {
+                    throw e;
                 } catch (Exception e) {
                     throw new RuntimeException(e);
                 }
@@ -37,19 +503,57 @@ public interface SeqReader<S, T> {
         }
     }
 
+    interface ChannelSource extends WithCe.Supplier<ReadableByteChannel> {}
+
+    interface Ch<T> extends SeqReader<ChannelSource, T> {
+        default Seq<T> readAll(Seq<Path> paths) {
+            return readAll(paths, MultiFileReader.PARALLELISM, true);
+        }
+
+        /**
+         * Reads files with at most {@code parallelism} at a time, either each file's elements in turn in
+         * the order of {@code paths}, or interleaved as they come.
+         */
+        default Seq<T> readAll(Seq<Path> paths, int parallelism, boolean ordered) {
+            return MultiFileReader.read(paths, parallelism, ordered, MultiFileReader.PREFETCH_SIZE, this::read,
+                bytes -> read(() -> Channels.newChannel(new ByteArrayInputStream(bytes))));
+        }
+
+        default SafeSeq<T> read(String file) {
+            return read(Paths.get(file));
+        }
+
+        default SafeSeq<T> read(Path path) {
+            return read(() -> Compression.openChannel(path));
+        }
+
+        default SafeSeq<T> read(File file) {
+            return read(file.toPath());
+        }
+    }
+
     interface InputSource extends WithCe.Supplier<InputStream> {}
 
     interface Is<T> extends SeqReader<InputSource, T> {
+        default Seq<T> readAll(Seq<Path> paths) {
+            return readAll(paths, MultiFileReader.PARALLELISM, true);
+        }
+
+        default Seq<T> readAll(Seq<Path> paths, int parallelism, boolean ordered) {
+            return MultiFileReader.read(paths, parallelism, ordered, MultiFileReader.PREFETCH_SIZE,
+                p -> read(p.toFile()), bytes -> read(() -> new ByteArrayInputStream(bytes)));
+        }
+
         default SafeSeq<T> read(URL url) {
             return read(url::openStream);
         }
 
         default SafeSeq<T> read(String file) {
-            return read(() -> Files.newInputStream(Paths.get(file)));
+            return read(() -> Compression.open(Paths.get(file)));
         }
 
         default SafeSeq<T> read(File file) {
-            return read(() -> Files.newInputStream(file.toPath()));
+            return read(() -> Compression.open(file.toPath()));
         }
 
         default SafeSeq<T> read(Class<?> cls, String resource) {
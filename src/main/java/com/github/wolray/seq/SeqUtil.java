@@ -1,5 +1,6 @@
 package com.github.wolray.seq;
 
+import java.lang.reflect.Method;
 import java.util.*;
 import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.ForkJoinTask;
@@ -10,6 +11,33 @@ import java.util.function.Function;
  * @author wolray
  */
 public class SeqUtil {
+    private static final Function<Runnable, Thread> threadFactory = threadFactory();
+
+    private static Function<Runnable, Thread> threadFactory() {
+        try {
+            Method ofVirtual = Thread.class.getMethod("ofVirtual");
+            Method unstarted = Class.forName("java.lang.Thread$Builder").getMethod("unstarted", Runnable.class);
+            unstarted.invoke(ofVirtual.invoke(null), (Runnable)() -> {});
+            return r -> {
+                try {
+                    return (Thread)unstarted.invoke(ofVirtual.invoke(null), r);
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            };
+        } catch (Exception e) {
+            return r -> {
+                Thread thread = new Thread(r);
+                thread.setDaemon(true);
+                return thread;
+            };
+        }
+    }
+
+    public static Thread newThread(Runnable runnable) {
+        return threadFactory.apply(runnable);
+    }
+
     public static <T> Seq<T> seq(Iterable<T> iterable) {
         return Seq.of(iterable);
     }
@@ -31,6 +59,10 @@ public class SeqUtil {
         return SeqMap.of(map);
     }
 
+    static <T> Collection<T> index(Collection<T> collection) {
+        return collection instanceof Set || collection.size() <= 8 ? collection : new HashSet<>(collection);
+    }
+
     public static <N> void scanTree(Consumer<N> c, N node, Function<N, Seq<N>> sub) {
         if (node != null) {
             c.accept(node);
@@ -0,0 +1,406 @@
+package com.github.wolray.seq;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+
+/**
+ * Writes a seq through one large reusable buffer, so that an element costs no write call of its own.
+ * With {@link #async()} the buffer is written on a background thread while the next one is filled.
+ * With {@link #rotate} a new file is started after any record that brings the current one (counted
+ * before compression) to the given size.
+ *
+ * @author wolray
+ */
+public class SeqWriter<T> {
+    public static final int BUFFER_SIZE = 1 << 20;
+    private final Function<WriteBuffer, Consumer<T>> encoder;
+    private int bufferSize = BUFFER_SIZE;
+    private boolean async;
+    private long rotateSize;
+    private IntFunction<Path> naming;
+    private Compression compression = Compression.NONE;
+    private String header;
+
+    SeqWriter(Function<WriteBuffer, Consumer<T>> encoder) {
+        this.encoder = encoder;
+    }
+
+    /**
+     * One line per element, its {@code toString()} encoded in UTF-8.
+     */
+    public static <T> SeqWriter<T> text() {
+        return new SeqWriter<>(out -> t -> {
+            out.putUtf8(t instanceof CharSequence ? (CharSequence)t : String.valueOf(t));
+            out.put((byte)'\n');
+        });
+    }
+
+    public static <T> SeqWriter<T> csv(BiConsumer<T, CsvFields> fields) {
+        return delimited((byte)',', fields);
+    }
+
+    public static <T> SeqWriter<T> tsv(BiConsumer<T, CsvFields> fields) {
+        return delimited((byte)'\t', fields);
+    }
+
+    private static <T> SeqWriter<T> delimited(byte delimiter, BiConsumer<T, CsvFields> fields) {
+        return new SeqWriter<>(out -> {
+            CsvFields f = new CsvFields(out, delimiter);
+            return t -> {
+                f.first = true;
+                fields.accept(t, f);
+                out.put((byte)'\n');
+            };
+        });
+    }
+
+    public static <T> SeqWriter<T> ndjson(BiConsumer<T, JsonFields> fields) {
+        return new SeqWriter<>(out -> {
+            JsonFields f = new JsonFields(out);
+            return t -> {
+                f.first = true;
+                out.put((byte)'{');
+                fields.accept(t, f);
+                out.put((byte)'}');
+                out.put((byte)'\n');
+            };
+        });
+    }
+
+    /**
+     * Records back to back for a fixed-width codec, varint length-prefixed otherwise, as in the body of
+     * a {@link FileCache} file. Read them back with {@link SeqReader#binary(Codec)}.
+     */
+    public static <T> SeqWriter<T> binary(Codec<T> codec) {
+        int fixedSize = codec.fixedSize();
+        return new SeqWriter<>(out -> t -> {
+            int n = codec.sizeOf(t);
+            out.ensure(fixedSize > 0 ? n : n + 5);
+            if (fixedSize <= 0) {
+                for (int v = n; ; v >>>= 7) {
+                    if ((v & ~0x7f) == 0) {
+                        out.buf.put((byte)v);
+                        break;
+                    }
+                    out.buf.put((byte)(v & 0x7f | 0x80));
+                }
+            }
+            codec.write(out.buf, t);
+        });
+    }
+
+    private SeqWriter<T> copy() {
+        SeqWriter<T> writer = new SeqWriter<>(encoder);
+        writer.bufferSize = bufferSize;
+        writer.async = async;
+        writer.rotateSize = rotateSize;
+        writer.naming = naming;
+        writer.compression = compression;
+        writer.header = header;
+        return writer;
+    }
+
+    public SeqWriter<T> bufferSize(int bufferSize) {
+        SeqWriter<T> writer = copy();
+        writer.bufferSize = Math.max(bufferSize, 64);
+        return writer;
+    }
+
+    public SeqWriter<T> async() {
+        SeqWriter<T> writer = copy();
+        writer.async = true;
+        return writer;
+    }
+
+    public SeqWriter<T> compress(Compression compression) {
+        SeqWriter<T> writer = copy();
+        writer.compression = compression;
+        return writer;
+    }
+
+    /**
+     * A line written at the start of every file.
+     */
+    public SeqWriter<T> header(String header) {
+        SeqWriter<T> writer = copy();
+        writer.header = header;
+        return writer;
+    }
+
+    /**
+     * Rotates to {@code name-1.ext}, {@code name-2.ext} and so on.
+     */
+    public SeqWriter<T> rotate(long maxBytes) {
+        return rotate(maxBytes, null);
+    }
+
+    public SeqWriter<T> rotate(long maxBytes, IntFunction<Path> naming) {
+        SeqWriter<T> writer = copy();
+        writer.rotateSize = maxBytes;
+        writer.naming = naming;
+        return writer;
+    }
+
+    public long write(Seq<? extends T> seq, String file) {
+        return write(seq, Paths.get(file));
+    }
+
+    public long write(Seq<? extends T> seq, File file) {
+        return write(seq, file.toPath());
+    }
+
+    /**
+     * Returns the number of elements written.
+     */
+    public long write(Seq<? extends T> seq, Path path) {
+        IntFunction<Path> names = naming != null ? naming : i -> i == 0 ? path : indexed(path, i);
+        try {
+            return write(seq, new WriteBuffer.Target(names, compression, headerBytes()), rotateSize);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Writes to a stream, such as {@code System.out}, which is flushed but left open.
+     */
+    public long write(Seq<? extends T> seq, OutputStream os) {
+        try {
+            return write(seq, new WriteBuffer.Target(os, compression, headerBytes()), 0);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private long write(Seq<? extends T> seq, WriteBuffer.Target target, long rotateSize) {
+        WriteBuffer out = new WriteBuffer(target, bufferSize, async, rotateSize);
+        try {
+            Consumer<T> consumer = encoder.apply(out);
+            long[] count = new long[1];
+            seq.supply(t -> {
+                consumer.accept(t);
+                out.endRecord();
+                count[0]++;
+            });
+            out.finish();
+            return count[0];
+        } finally {
+            out.close();
+        }
+    }
+
+    private byte[] headerBytes() {
+        return header != null ? (header + "\n").getBytes(StandardCharsets.UTF_8) : null;
+    }
+
+    private static Path indexed(Path path, int index) {
+        String name = path.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        String next = dot > 0 ? name.substring(0, dot) + "-" + index + name.substring(dot) : name + "-" + index;
+        return path.resolveSibling(next);
+    }
+
+    /**
+     * The fields of one delimited record, quoted only when they have to be.
+     */
+    public static class CsvFields {
+        private final WriteBuffer out;
+        private final byte delimiter;
+        boolean first;
+
+        CsvFields(WriteBuffer out, byte delimiter) {
+            this.out = out;
+            this.delimiter = delimiter;
+        }
+
+        private void next() {
+            if (first) {
+                first = false;
+            } else {
+                out.put(delimiter);
+            }
+        }
+
+        public CsvFields add(CharSequence cs) {
+            next();
+            if (cs == null) {
+                return this;
+            }
+            boolean quote = false;
+            for (int i = 0, n = cs.length(); i < n && !quote; i++) {
+                char c = cs.charAt(i);
+                quote = c == delimiter || c == '"' || c == '\n' || c == '\r';
+            }
+            if (!quote) {
+                out.putUtf8(cs);
+                return this;
+            }
+            out.put((byte)'"');
+            int run = 0;
+            for (int i = 0, n = cs.length(); i < n; i++) {
+                if (cs.charAt(i) == '"') {
+                    out.putUtf8(cs.subSequence(run, i + 1));
+                    out.put((byte)'"');
+                    run = i + 1;
+                }
+            }
+            out.putUtf8(cs.subSequence(run, cs.length()));
+            out.put((byte)'"');
+            return this;
+        }
+
+        public CsvFields add(int v) {
+            return add((long)v);
+        }
+
+        public CsvFields add(long v) {
+            next();
+            out.putLong(v);
+            return this;
+        }
+
+        public CsvFields add(double v) {
+            next();
+            out.putDouble(v);
+            return this;
+        }
+
+        public CsvFields add(boolean v) {
+            return add(v ? "true" : "false");
+        }
+
+        public CsvFields add(Object o) {
+            if (o instanceof Integer || o instanceof Long || o instanceof Short || o instanceof Byte) {
+                return add(((Number)o).longValue());
+            }
+            if (o instanceof Double || o instanceof Float) {
+                return add(((Number)o).doubleValue());
+            }
+            return add(o != null ? o.toString() : null);
+        }
+    }
+
+    /**
+     * The members of one JSON object.
+     */
+    public static class JsonFields {
+        private final WriteBuffer out;
+        boolean first;
+
+        JsonFields(WriteBuffer out) {
+            this.out = out;
+        }
+
+        private void name(String name) {
+            if (first) {
+                first = false;
+            } else {
+                out.put((byte)',');
+            }
+            string(name);
+            out.put((byte)':');
+        }
+
+        private void string(CharSequence cs) {
+            out.put((byte)'"');
+            int run = 0, n = cs.length();
+            for (int i = 0; i < n; i++) {
+                char c = cs.charAt(i);
+                if (c >= 0x20 && c != '"' && c != '\\') {
+                    continue;
+                }
+                out.putUtf8(cs.subSequence(run, i));
+                run = i + 1;
+                out.put((byte)'\\');
+                switch (c) {
+                    case '"':
+                    case '\\':
+                        out.put((byte)c);
+                        break;
+                    case '\n':
+                        out.put((byte)'n');
+                        break;
+                    case '\r':
+                        out.put((byte)'r');
+                        break;
+                    case '\t':
+                        out.put((byte)'t');
+                        break;
+                    default:
+                        out.putUtf8(String.format("u%04x", (int)c));
+                }
+            }
+            out.putUtf8(run == 0 ? cs : cs.subSequence(run, n));
+            out.put((byte)'"');
+        }
+
+        public JsonFields put(String name, CharSequence value) {
+            name(name);
+            if (value == null) {
+                out.putUtf8("null");
+            } else {
+                string(value);
+            }
+            return this;
+        }
+
+        public JsonFields put(String name, int value) {
+            return put(name, (long)value);
+        }
+
+        public JsonFields put(String name, long value) {
+            name(name);
+            out.putLong(value);
+            return this;
+        }
+
+        /**
+         * NaN and infinities have no JSON form and are written as null.
+         */
+        public JsonFields put(String name, double value) {
+            name(name);
+            if (Double.isNaN(value) || Double.isInfinite(value)) {
+                out.putUtf8("null");
+            } else {
+                out.putDouble(value);
+            }
+            return this;
+        }
+
+        public JsonFields put(String name, boolean value) {
+            name(name);
+            out.putUtf8(value ? "true" : "false");
+            return this;
+        }
+
+        public JsonFields put(String name, Object value) {
+            if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+                return put(name, ((Number)value).longValue());
+            }
+            if (value instanceof Double || value instanceof Float) {
+                return put(name, ((Number)value).doubleValue());
+            }
+            if (value instanceof Boolean) {
+                return put(name, (boolean)(Boolean)value);
+            }
+            return put(name, value != null ? value.toString() : null);
+        }
+
+        /**
+         * Writes {@code json} as the value unchecked, for nested objects and arrays.
+         */
+        public JsonFields putRaw(String name, CharSequence json) {
+            name(name);
+            out.putUtf8(json);
+            return this;
+        }
+    }
+}
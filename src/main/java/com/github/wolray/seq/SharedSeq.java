@@ -0,0 +1,142 @@
+package com.github.wolray.seq;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * A seq shared by concurrent consumers with one upstream traversal. The first consumer drives the
+ * source, appending each element to a chunked buffer before accepting it; other consumers follow
+ * behind by reading the buffer without locks. If the driver stops early, the next consumer to catch up
+ * takes over, skipping what has already been recorded. A traversal nested in the driver's own consumer
+ * cannot wait for it, so it reads the recorded elements and then evaluates the source directly.
+ *
+ * @author wolray
+ */
+public class SharedSeq<T> implements Seq<T> {
+    private static final int SHIFT = 4;
+    private final Object[][] chunks = new Object[32][];
+    private final AtomicBoolean driving = new AtomicBoolean();
+    private final Seq<T> source;
+    private volatile int published;
+    private volatile boolean done;
+    private volatile Throwable error;
+    private volatile Thread driver;
+
+    SharedSeq(Seq<T> source) {
+        this.source = source;
+    }
+
+    @Override
+    public void supply(Consumer<T> consumer) {
+        int i = 0;
+        for (int idle = 0; ; ) {
+            int n = published;
+            if (i < n) {
+                for (; i < n; i++) {
+                    consumer.accept(get(i));
+                }
+                idle = 0;
+            } else if (done) {
+                if (i >= published) {
+                    rethrow();
+                    return;
+                }
+            } else if (driving.compareAndSet(false, true)) {
+                if (drive(consumer, i)) {
+                    return;
+                }
+            } else if (driver == Thread.currentThread()) {
+                int from = i;
+                int[] k = new int[1];
+                source.supply(t -> {
+                    if (k[0]++ >= from) {
+                        consumer.accept(t);
+                    }
+                });
+                return;
+            } else if (idle < 64) {
+                idle++;
+                Thread.yield();
+            } else {
+                LockSupport.parkNanos(1L << Math.min(idle++ - 54, 20));
+            }
+        }
+    }
+
+    private boolean drive(Consumer<T> consumer, int from) {
+        if (done || from < published) {
+            driving.set(false);
+            return false;
+        }
+        int[] k = new int[1];
+        boolean[] consumerFailed = new boolean[1];
+        driver = Thread.currentThread();
+        try {
+            source.supply(t -> {
+                int idx = k[0]++;
+                if (idx < from) {
+                    return;
+                }
+                append(idx, t);
+                try {
+                    consumer.accept(t);
+                } catch (Throwable e) {
+                    consumerFailed[0] = true;
+                    throw e;
+                }
+            });
+            if (!consumerFailed[0]) {
+                done = true;
+            }
+        } catch (Throwable e) {
+            if (!consumerFailed[0]) {
+                error = e;
+                done = true;
+            }
+            throw e;
+        } finally {
+            driver = null;
+            driving.set(false);
+        }
+        return true;
+    }
+
+    private void append(int index, T t) {
+        int k = BatchList.chunkIndex(SHIFT, index);
+        Object[] chunk = chunks[k];
+        if (chunk == null) {
+            chunk = chunks[k] = new Object[BatchList.chunkSize(SHIFT, k)];
+        }
+        chunk[index - BatchList.chunkStart(SHIFT, k)] = t;
+        published = index + 1;
+    }
+
+    @SuppressWarnings("unchecked")
+    private T get(int index) {
+        int k = BatchList.chunkIndex(SHIFT, index);
+        return (T)chunks[k][index - BatchList.chunkStart(SHIFT, k)];
+    }
+
+    private void rethrow() {
+        Throwable e = error;
+        if (e instanceof RuntimeException) {
+            throw (RuntimeException)e;
+        }
+        if (e instanceof Error) {
+            throw (Error)e;
+        }
+        if (e != null) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    public boolean isComplete() {
+        return done && error == null;
+    }
+
+    @Override
+    public int sizeOrDefault() {
+        return done ? published : Seq.super.sizeOrDefault();
+    }
+}
@@ -0,0 +1,133 @@
+package com.github.wolray.seq;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Groups a seq in memory until the encoded size of the elements held passes a budget, then moves them
+ * to hash partitions of {@link FileCache} files in a temp directory, appends the rest of the seq there
+ * and groups one partition at a time. A partition still over the budget is split again with another
+ * hash, down to {@link #MAX_LEVEL}, beyond which it is grouped in memory as is. Partitions are read
+ * back as a stream rather than mapped, so each file is closed and deleted as soon as it is grouped.
+ * Elements keep their order within a group; the order of groups is unspecified.
+ *
+ * @author wolray
+ */
+final class SpillingGroupBy<T, K> {
+    static final int PARTITIONS = 64;
+    static final int MAX_LEVEL = 3;
+    private final Function<T, K> kFunction;
+    private final Codec<T> codec;
+    private final long maxBytes;
+
+    private SpillingGroupBy(Function<T, K> kFunction, Codec<T> codec, long maxBytes) {
+        this.kFunction = kFunction;
+        this.codec = codec;
+        this.maxBytes = maxBytes;
+    }
+
+    static <T, K> Seq<Pair<K, BatchList<T>>> of(Seq<T> seq, Function<T, K> kFunction, Codec<T> codec, long maxBytes) {
+        SpillingGroupBy<T, K> groupBy = new SpillingGroupBy<>(kFunction, codec, maxBytes);
+        return c -> groupBy.group(seq, 0, c);
+    }
+
+    private void group(Seq<T> seq, int level, Consumer<Pair<K, BatchList<T>>> consumer) {
+        Map<K, BatchList<T>> map = new HashMap<>();
+        Function<K, BatchList<T>> mappingFunction = k -> new BatchList<>();
+        long[] bytes = new long[1];
+        Mutable<Spill> spill = new Mutable<>(null);
+        try {
+            seq.supply(t -> {
+                if (spill.it != null) {
+                    spill.it.add(t);
+                    return;
+                }
+                map.computeIfAbsent(kFunction.apply(t), mappingFunction).add(t);
+                bytes[0] += codec.sizeOf(t);
+                if (bytes[0] > maxBytes && level < MAX_LEVEL) {
+                    spill.it = new Spill(level);
+                    map.values().forEach(ts -> ts.supply(spill.it::add));
+                    map.clear();
+                }
+            });
+            if (spill.it == null) {
+                map.forEach((k, ts) -> {
+                    ts.trimToSize();
+                    consumer.accept(new Pair<>(k, ts));
+                });
+                return;
+            }
+            spill.it.commit();
+            FileCache<T>[] parts = spill.it.parts;
+            for (int i = 0; i < PARTITIONS; i++) {
+                if (parts[i] != null) {
+                    group(parts[i]::scan, level + 1, consumer);
+                    parts[i].delete();
+                    parts[i] = null;
+                }
+            }
+        } finally {
+            if (spill.it != null) {
+                spill.it.close();
+            }
+        }
+    }
+
+    private class Spill {
+        final int level;
+        final Path dir;
+        @SuppressWarnings("unchecked")
+        final FileCache<T>[] parts = (FileCache<T>[])new FileCache<?>[PARTITIONS];
+        @SuppressWarnings("unchecked")
+        final FileCache.Writer<T>[] writers = (FileCache.Writer<T>[])new FileCache.Writer<?>[PARTITIONS];
+
+        Spill(int level) {
+            this.level = level;
+            try {
+                dir = Files.createTempDirectory("seq-group");
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        void add(T t) {
+            int h = Objects.hashCode(kFunction.apply(t)) * 0x9e3779b9;
+            int i = (Integer.rotateLeft(h ^ h >>> 16, level * 11) & Integer.MAX_VALUE) % PARTITIONS;
+            FileCache.Writer<T> writer = writers[i];
+            if (writer == null) {
+                parts[i] = new FileCache<>(dir.resolve("part-" + i), codec);
+                writer = writers[i] = parts[i].writer();
+            }
+            writer.add(t);
+        }
+
+        void commit() {
+            for (int i = 0; i < PARTITIONS; i++) {
+                if (writers[i] != null) {
+                    writers[i].commit();
+                    writers[i] = null;
+                }
+            }
+        }
+
+        void close() {
+            for (int i = 0; i < PARTITIONS; i++) {
+                if (writers[i] != null) {
+                    writers[i].close();
+                }
+                if (parts[i] != null) {
+                    parts[i].delete();
+                }
+            }
+            try {
+                Files.deleteIfExists(dir);
+            } catch (IOException ignore) {}
+        }
+    }
+}
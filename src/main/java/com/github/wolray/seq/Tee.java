@@ -0,0 +1,179 @@
+package com.github.wolray.seq;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.*;
+import java.util.stream.Collector;
+
+/**
+ * Runs several terminal operations over one traversal of a seq. Each operation registered on the tee
+ * returns a {@link Mutable} holder, filled in by {@link #run()}, which supplies the seq once and feeds
+ * every element to all of them.
+ * <pre>{@code
+ * Tee<Line> tee = SeqReader.lines().read("app.log").tee();
+ * Mutable<Integer> lines = tee.count();
+ * Mutable<Integer> errors = tee.count(l -> l.contains("ERROR"));
+ * Mutable<Double> width = tee.average(Line::length);
+ * tee.run();
+ * }</pre>
+ * A {@link #branch} applies element-wise operations ({@code map}, {@code filter}, {@code take} and the
+ * like) before its own terminals; operations that need the whole seq, such as {@code sorted}, do not
+ * work there. A branch that stops early is dropped, and the traversal ends once all have stopped.
+ *
+ * @author wolray
+ */
+public class Tee<T> {
+    private final Root<?> root;
+    private final Seq<T> input;
+
+    private Tee(Root<?> root, Seq<T> input) {
+        this.root = root;
+        this.input = input;
+    }
+
+    static <T> Tee<T> of(Seq<T> seq) {
+        Root<T> root = new Root<>(seq);
+        return new Tee<>(root, c -> root.consumers.add(c));
+    }
+
+    /**
+     * A tee whose elements are this one's passed through {@code pipeline}, run by the same traversal.
+     */
+    public <E> Tee<E> branch(Function<Seq<T>, Seq<E>> pipeline) {
+        return new Tee<>(root, pipeline.apply(input));
+    }
+
+    private <E> Mutable<E> register(E init, Consumer<T> consumer, Consumer<Mutable<E>> finisher) {
+        Mutable<E> m = new Mutable<>(init);
+        input.supply(consumer);
+        if (finisher != null) {
+            root.finishers.add(() -> finisher.accept(m));
+        }
+        return m;
+    }
+
+    public <E> Mutable<E> fold(E init, BiFunction<E, T, E> function) {
+        Mutable<E> m = new Mutable<>(init);
+        input.supply(t -> m.it = function.apply(m.it, t));
+        return m;
+    }
+
+    public <E> Mutable<E> feed(E des, BiConsumer<E, T> consumer) {
+        return register(des, t -> consumer.accept(des, t), null);
+    }
+
+    public <R, A> Mutable<R> collect(Collector<T, A, R> collector) {
+        A a = collector.supplier().get();
+        BiConsumer<A, T> accumulator = collector.accumulator();
+        return register(null, t -> accumulator.accept(a, t), m -> m.it = collector.finisher().apply(a));
+    }
+
+    public Mutable<Integer> count() {
+        int[] n = new int[1];
+        return register(0, t -> n[0]++, m -> m.it = n[0]);
+    }
+
+    public Mutable<Integer> count(Predicate<T> predicate) {
+        int[] n = new int[1];
+        return register(0, t -> {
+            if (predicate.test(t)) {
+                n[0]++;
+            }
+        }, m -> m.it = n[0]);
+    }
+
+    public Mutable<Double> sum(ToDoubleFunction<T> function) {
+        double[] a = new double[1];
+        return register(0.0, t -> a[0] += function.applyAsDouble(t), m -> m.it = a[0]);
+    }
+
+    public Mutable<Integer> sumInt(ToIntFunction<T> function) {
+        int[] a = new int[1];
+        return register(0, t -> a[0] += function.applyAsInt(t), m -> m.it = a[0]);
+    }
+
+    public Mutable<Long> sumLong(ToLongFunction<T> function) {
+        long[] a = new long[1];
+        return register(0L, t -> a[0] += function.applyAsLong(t), m -> m.it = a[0]);
+    }
+
+    public Mutable<Double> average(ToDoubleFunction<T> function) {
+        double[] a = new double[2];
+        return register(0.0, t -> {
+            a[0] += function.applyAsDouble(t);
+            a[1] += 1;
+        }, m -> m.it = a[1] != 0 ? a[0] / a[1] : 0);
+    }
+
+    public Mutable<T> max(Comparator<T> comparator) {
+        return fold(null, (f, t) -> f == null || comparator.compare(f, t) < 0 ? t : f);
+    }
+
+    public Mutable<T> min(Comparator<T> comparator) {
+        return fold(null, (f, t) -> f == null || comparator.compare(f, t) > 0 ? t : f);
+    }
+
+    public Mutable<BatchList<T>> toList() {
+        return feed(new BatchList<>(), BatchList::add);
+    }
+
+    public <K> Mutable<SeqMap<K, BatchList<T>>> groupBy(Function<T, K> kFunction) {
+        Map<K, BatchList<T>> map = new HashMap<>();
+        Function<K, BatchList<T>> mappingFunction = k -> new BatchList<>();
+        return register(new SeqMap<>(map), t -> map.computeIfAbsent(kFunction.apply(t), mappingFunction).add(t), null);
+    }
+
+    public <K> Mutable<ObjIntSeqMap<K>> countBy(Function<T, K> function) {
+        ObjIntSeqMap<K> map = new ObjIntSeqMap<>();
+        return register(map, t -> map.addTo(function.apply(t), 1), null);
+    }
+
+    /**
+     * Supplies the seq once to every registered operation and fills their holders. A tee runs once.
+     */
+    public void run() {
+        root.run();
+    }
+
+    private static class Root<T> {
+        final Seq<T> seq;
+        final List<Consumer<T>> consumers = new ArrayList<>();
+        final List<Runnable> finishers = new ArrayList<>();
+        boolean done;
+
+        Root(Seq<T> seq) {
+            this.seq = seq;
+        }
+
+        @SuppressWarnings("unchecked")
+        void run() {
+            if (done) {
+                throw new IllegalStateException("a tee runs only once");
+            }
+            done = true;
+            Consumer<T>[] cs = (Consumer<T>[])consumers.toArray(new Consumer<?>[0]);
+            int[] live = {cs.length};
+            if (live[0] > 0) {
+                seq.tillStop(t -> {
+                    for (int i = 0; i < cs.length; i++) {
+                        Consumer<T> c = cs[i];
+                        if (c != null) {
+                            try {
+                                c.accept(t);
+                            } catch (Seq0.StopException e) {
+                                cs[i] = null;
+                                if (--live[0] == 0) {
+                                    throw e;
+                                }
+                            }
+                        }
+                    }
+                });
+            }
+            finishers.forEach(Runnable::run);
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package com.github.wolray.seq;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Queue;
+import java.util.function.Consumer;
+
+/**
+ * A {@link Queue} like {@link SinglyList} whose nodes hold arrays of elements, from 8 up to 512 per
+ * node, so that adding allocates once per node rather than once per element and a scan follows few
+ * links. Used as a queue, a drained node is reused in place when it is the only one. Not thread-safe;
+ * see {@link MpscQueue}.
+ *
+ * @author wolray
+ */
+public class UnrolledList<T> implements AdderList<T>, Queue<T> {
+    static final int MIN_CHUNK = 8;
+    static final int MAX_CHUNK = 512;
+    private transient Node head;
+    private transient Node last;
+    private transient int headPos;
+    private transient int size;
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void supply(Consumer<T> consumer) {
+        for (Node node = head; node != null; node = node.next) {
+            Object[] ts = node.ts;
+            for (int i = node == head ? headPos : 0, n = node.n; i < n; i++) {
+                consumer.accept((T)ts[i]);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return join();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return new Iterator<T>() {
+            Node node = head;
+            int i = headPos;
+
+            @Override
+            public boolean hasNext() {
+                while (node != null && i >= node.n) {
+                    node = node.next;
+                    i = 0;
+                }
+                return node != null;
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public T next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return (T)node.ts[i++];
+            }
+        };
+    }
+
+    @Override
+    public boolean add(T t) {
+        if (last == null) {
+            head = last = new Node(MIN_CHUNK);
+        } else if (last.n == last.ts.length) {
+            last = last.next = new Node(Math.min(last.ts.length << 1, MAX_CHUNK));
+        }
+        last.ts[last.n++] = t;
+        size++;
+        return true;
+    }
+
+    @Override
+    public void clear() {
+        head = last = null;
+        headPos = 0;
+        size = 0;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException(String.format("%d, %d", index, size));
+        }
+        int i = index + headPos;
+        Node node = head;
+        while (i >= node.n) {
+            i -= node.n;
+            node = node.next;
+        }
+        return (T)node.ts[i];
+    }
+
+    @Override
+    public boolean offer(T t) {
+        return add(t);
+    }
+
+    @Override
+    public T remove() {
+        if (size == 0) {
+            throw new NoSuchElementException();
+        }
+        return poll();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T poll() {
+        if (size == 0) {
+            return null;
+        }
+        T t = (T)head.ts[headPos];
+        head.ts[headPos++] = null;
+        size--;
+        if (headPos == head.n) {
+            headPos = 0;
+            if (head.next != null) {
+                Node next = head.next;
+                head.next = null;
+                head = next;
+            } else {
+                head.n = 0;
+            }
+        }
+        return t;
+    }
+
+    @Override
+    public T element() {
+        if (size == 0) {
+            throw new NoSuchElementException();
+        }
+        return peek();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T peek() {
+        return size != 0 ? (T)head.ts[headPos] : null;
+    }
+
+    private static class Node {
+        final Object[] ts;
+        int n;
+        Node next;
+
+        Node(int capacity) {
+            ts = new Object[capacity];
+        }
+    }
+}
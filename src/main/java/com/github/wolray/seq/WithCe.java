@@ -76,6 +76,10 @@ public interface WithCe {
         Iterator<T> iterator() throws Exception;
     }
 
+    interface Runnable {
+        void run() throws Exception;
+    }
+
     interface Seq<T> {
         void accept(java.util.function.Consumer<T> consumer) throws Exception;
     }
@@ -0,0 +1,310 @@
+package com.github.wolray.seq;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.function.IntFunction;
+
+/**
+ * The output side of {@link SeqWriter}. Records are encoded into a large heap buffer which, once full,
+ * is written to the target; with async writes it is handed to a background thread in exchange for a
+ * spare one, so that encoding the next buffer overlaps writing the last.
+ *
+ * @author wolray
+ */
+class WriteBuffer {
+    private static final ByteBuffer ROTATE = ByteBuffer.allocate(0);
+    private static final ByteBuffer END = ByteBuffer.allocate(0);
+    private final Target target;
+    private final long rotateSize;
+    private final BlockingQueue<ByteBuffer> full;
+    private final BlockingQueue<ByteBuffer> empty;
+    private final Thread thread;
+    private volatile Throwable error;
+    private long fileBytes;
+    private boolean finished;
+    ByteBuffer buf;
+
+    WriteBuffer(Target target, int bufferSize, boolean async, long rotateSize) {
+        this.target = target;
+        this.rotateSize = rotateSize;
+        buf = ByteBuffer.allocate(bufferSize);
+        if (async) {
+            full = new ArrayBlockingQueue<>(2);
+            empty = new ArrayBlockingQueue<>(1);
+            empty.add(ByteBuffer.allocate(bufferSize));
+            thread = SeqUtil.newThread(this::drain);
+            thread.start();
+        } else {
+            full = null;
+            empty = null;
+            thread = null;
+        }
+    }
+
+    private void drain() {
+        try {
+            while (true) {
+                ByteBuffer b = full.take();
+                if (b == END) {
+                    return;
+                }
+                if (error == null) {
+                    try {
+                        if (b == ROTATE) {
+                            target.rotate();
+                        } else {
+                            target.write(b);
+                        }
+                    } catch (Throwable e) {
+                        error = e;
+                    }
+                }
+                if (b != ROTATE) {
+                    b.clear();
+                    empty.put(b);
+                }
+            }
+        } catch (InterruptedException ignore) {}
+    }
+
+    void ensure(int n) {
+        if (buf.remaining() < n) {
+            flush();
+            if (buf.capacity() < n) {
+                buf = ByteBuffer.allocate(n);
+            }
+        }
+    }
+
+    void endRecord() {
+        if (rotateSize > 0 && fileBytes + buf.position() >= rotateSize) {
+            flush();
+            if (full != null) {
+                handOver(ROTATE);
+            } else {
+                run(target::rotate);
+            }
+            fileBytes = 0;
+        }
+    }
+
+    private void flush() {
+        if (buf.position() == 0) {
+            return;
+        }
+        fileBytes += buf.position();
+        buf.flip();
+        if (full != null) {
+            handOver(buf);
+            try {
+                buf = empty.take();
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+            checkError();
+        } else {
+            run(() -> target.write(buf));
+            buf.clear();
+        }
+    }
+
+    private void handOver(ByteBuffer b) {
+        try {
+            full.put(b);
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private void checkError() {
+        Throwable e = error;
+        if (e instanceof RuntimeException) {
+            throw (RuntimeException)e;
+        }
+        if (e instanceof Error) {
+            throw (Error)e;
+        }
+        if (e != null) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static void run(WithCe.Runnable runnable) {
+        try {
+            runnable.run();
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    void finish() {
+        flush();
+        close();
+        checkError();
+    }
+
+    void close() {
+        if (finished) {
+            return;
+        }
+        finished = true;
+        try {
+            if (thread != null) {
+                handOver(END);
+                thread.join();
+            }
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        } finally {
+            run(target::close);
+        }
+    }
+
+    void put(byte b) {
+        ensure(1);
+        buf.put(b);
+    }
+
+    void putUtf8(CharSequence cs) {
+        int n = cs.length();
+        ensure(n * 3 <= buf.capacity() ? n * 3 : Codec.utf8Length(cs));
+        Codec.putUtf8(buf, cs);
+    }
+
+    void putLong(long v) {
+        if (v == Long.MIN_VALUE) {
+            putUtf8(Long.toString(v));
+            return;
+        }
+        ensure(20);
+        if (v < 0) {
+            buf.put((byte)'-');
+            v = -v;
+        }
+        int start = buf.position(), end = start + digits(v);
+        byte[] a = buf.array();
+        int i = buf.arrayOffset() + end;
+        do {
+            a[--i] = (byte)('0' + v % 10);
+            v /= 10;
+        } while (v > 0);
+        buf.position(end);
+    }
+
+    private static int digits(long v) {
+        int n = 1;
+        for (long p = 10; n < 19 && v >= p; p *= 10) {
+            n++;
+        }
+        return n;
+    }
+
+    void putDouble(double v) {
+        if (v == (long)v && Math.abs(v) < 1e7 && (v != 0 || 1 / v > 0)) {
+            putLong((long)v);
+            ensure(2);
+            buf.put((byte)'.').put((byte)'0');
+        } else {
+            putUtf8(Double.toString(v));
+        }
+    }
+
+    /**
+     * The destination of a {@link WriteBuffer}: a rotating series of files, or a stream left open.
+     */
+    static class Target {
+        private final IntFunction<Path> naming;
+        private final OutputStream stream;
+        private final Compression compression;
+        private final byte[] header;
+        private FileChannel fc;
+        private OutputStream os;
+        private int index;
+
+        Target(IntFunction<Path> naming, Compression compression, byte[] header) throws IOException {
+            this.naming = naming;
+            this.compression = compression;
+            this.header = header;
+            stream = null;
+            open();
+        }
+
+        Target(OutputStream stream, Compression compression, byte[] header) throws IOException {
+            naming = null;
+            this.compression = compression;
+            this.header = header;
+            this.stream = new FilterOutputStream(stream) {
+                @Override
+                public void write(byte[] b, int off, int len) throws IOException {
+                    out.write(b, off, len);
+                }
+
+                @Override
+                public void close() throws IOException {
+                    flush();
+                }
+            };
+            open();
+        }
+
+        private void open() throws IOException {
+            OutputStream raw = stream;
+            if (raw == null) {
+                Path path = naming.apply(index);
+                Path dir = path.toAbsolutePath().getParent();
+                if (dir != null) {
+                    Files.createDirectories(dir);
+                }
+                if (compression == Compression.NONE) {
+                    fc = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                        StandardOpenOption.TRUNCATE_EXISTING);
+                } else {
+                    raw = Files.newOutputStream(path);
+                }
+            }
+            os = fc != null ? null : compression.wrap(raw);
+            if (header != null) {
+                write(ByteBuffer.wrap(header));
+            }
+        }
+
+        void write(ByteBuffer b) throws IOException {
+            if (fc != null) {
+                while (b.hasRemaining()) {
+                    fc.write(b);
+                }
+            } else {
+                os.write(b.array(), b.arrayOffset() + b.position(), b.remaining());
+                b.position(b.limit());
+            }
+        }
+
+        void rotate() throws IOException {
+            if (stream != null) {
+                throw new IllegalStateException("cannot rotate a stream");
+            }
+            close();
+            index++;
+            open();
+        }
+
+        void close() throws IOException {
+            if (fc != null) {
+                fc.close();
+                fc = null;
+            }
+            if (os != null) {
+                os.close();
+                os = null;
+            }
+        }
+    }
+}
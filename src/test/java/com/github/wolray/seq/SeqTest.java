@@ -2,11 +2,41 @@ package com.github.wolray.seq;
 
 import org.junit.Test;
 
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Random;
+import java.util.Set;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
 import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
 /**
  * @author wolray
@@ -60,6 +90,517 @@ public class SeqTest {
         pair1.second.assertTo("0,2,4,6,10,12");
     }
 
+    @Test
+    public void testBatchList() {
+        BatchList<Integer> list = new BatchList<>(3);
+        IntSeq.range(1000).boxed().supply(list::add);
+        assert list.size() == 1000;
+        for (int i = 0; i < 1000; i++) {
+            assert list.get(i) == i;
+        }
+        list.trimToSize();
+        list.add(1000);
+        assert list.get(1000) == 1000;
+        assert list.count() == 1001;
+        int i = 0;
+        for (Integer t : list) {
+            assert t == i++;
+        }
+        assert list.toArray().length == 1001;
+        list.clear();
+        assert list.isEmpty();
+        list.assertTo("");
+    }
+
+    @Test
+    public void testOffHeapList() {
+        OffHeapList<String> list = new OffHeapList<>(Codec.STRING, 16);
+        Seq.of("a", "bc", null, "\u4e2d\u6587", "0123456789abcdefghij", "\ud83d\ude00").supply(list::add);
+        assert list.size() == 6;
+        list.assertTo("a,bc,null,\u4e2d\u6587,0123456789abcdefghij,\ud83d\ude00");
+        assert list.get(1).equals("bc");
+        assert list.get(2) == null;
+        assert list.get(4).equals("0123456789abcdefghij");
+        assert list.get(5).equals("\ud83d\ude00");
+
+        Seq<Integer> ints = IntSeq.range(100).boxed().cache(Codec.INT);
+        assert ints instanceof OffHeapList;
+        assert ints.sizeOrDefault() == 100;
+        assert ((OffHeapList<Integer>)ints).get(99) == 99;
+        assert ints.sum(i -> i) == 4950;
+    }
+
+    @Test
+    public void testFileCache() throws IOException {
+        Path dir = Files.createTempDirectory("seq");
+        for (Compression compression : Compression.values()) {
+            FileCache<Pair<String, Integer>> cache = new FileCache<>(dir.resolve(compression + ".bin"),
+                Codec.pair(Codec.STRING, Codec.INT)).compress(compression);
+            int[] runs = new int[1];
+            Seq<Pair<String, Integer>> seq = IntSeq.range(5000)
+                .mapToObj(i -> new Pair<>("s" + i, i))
+                .onEach(p -> runs[0]++)
+                .cacheBy(cache);
+            assert seq.take(3).count() == 3;
+            assert !cache.exists();
+            assert seq.count() == 5000;
+            assert cache.exists();
+            assert seq.map(p -> p.first).take(3).join(",").equals("s0,s1,s2");
+            assert seq.sumInt(p -> p.second) == 4999 * 5000 / 2;
+            assert runs[0] == 5004;
+            cache.delete();
+        }
+        FileCache<Triple<Long, Double, Boolean>> fixed = new FileCache<>(dir.resolve("fixed.bin"),
+            Codec.triple(Codec.LONG, Codec.DOUBLE, Codec.BOOLEAN));
+        fixed.write(Seq.of(new Triple<>(1L, 0.5, true), new Triple<>(2L, 1.5, false)).toList());
+        fixed.read().assertTo("(1,0.5,true),(2,1.5,false)");
+        fixed.delete();
+
+        FileCache<String> strings = new FileCache<>(dir.resolve("strings.bin"), Codec.STRING);
+        strings.write(IntSeq.range(1000).mapToObj(i -> "s" + i).toList());
+        Seq<String> mapped = strings.read();
+        assert mapped instanceof MappedList;
+        MappedList<String> list = (MappedList<String>)mapped;
+        assert list.sizeOrDefault() == 1000;
+        assert list.get(999).equals("s999");
+        assert list.get(500).equals("s500");
+        list.subList(10, 13).assertTo("s10,s11,s12");
+        assert list.subList(10, 20).get(9).equals("s19");
+        int k = 0;
+        for (String s : list) {
+            assert s.equals("s" + k++);
+        }
+        assert k == 1000;
+        assert !list.subList(5, 5).iterator().hasNext();
+        strings.delete();
+
+        FileCache<Long> longs = new FileCache<>(dir.resolve("longs.bin"), Codec.LONG);
+        longs.write(Seq.of(5L, 6L, 7L).toList());
+        MappedList<Long> longList = (MappedList<Long>)longs.read();
+        assert longList.get(2) == 7L;
+        longList.subList(1, 3).assertTo("6,7");
+        longs.delete();
+        Files.delete(dir);
+    }
+
+    @Test
+    public void testCacheRegistry() throws Exception {
+        Path dir = Files.createTempDirectory("seq");
+        CacheRegistry<Integer, Integer> registry = new CacheRegistry<Integer, Integer>(25)
+            .spillTo(k -> new FileCache<>(dir.resolve(k + ".bin"), Codec.INT));
+        int[] loads = new int[1];
+        Function<Integer, Seq<Integer>> seq = k -> IntSeq.range(10).boxed().onEach(i -> loads[0]++).map(i -> i + k);
+        assert seq.apply(0).cacheBy(registry, 0).sum(i -> i) == 45;
+        assert seq.apply(0).cacheBy(registry, 0).count() == 10;
+        assert seq.apply(1).cacheBy(registry, 1).count() == 10;
+        assert loads[0] == 20;
+        assert registry.hits() == 1 && registry.misses() == 2 && registry.evictions() == 0;
+        seq.apply(2).cacheBy(registry, 2).assertTo("2,3,4,5,6,7,8,9,10,11");
+        assert registry.evictions() == 1 && registry.weight() == 20;
+        assert Files.exists(dir.resolve("0.bin"));
+        seq.apply(0).cacheBy(registry, 0).assertTo("0,1,2,3,4,5,6,7,8,9");
+        assert loads[0] == 30;
+        registry.invalidate(0);
+        assert !Files.exists(dir.resolve("0.bin"));
+        seq.apply(0).cacheBy(registry, 0).assertTo("0,1,2,3,4,5,6,7,8,9");
+        assert loads[0] == 40;
+        registry.clear();
+        assert registry.size() == 0 && dir.toFile().listFiles().length == 0;
+
+        Thread[] threads = new Thread[8];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread(() -> registry.get(3, () -> {
+                try {
+                    Thread.sleep(50);
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+                return seq.apply(3);
+            }));
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assert loads[0] == 50;
+        Seq.of(dir.toFile().listFiles()).supply(File::delete);
+        Files.delete(dir);
+    }
+
+    @Test
+    public void testCacheRegistrySpillTarget() {
+        Map<String, List<Integer>> store = new HashMap<>();
+        CacheRegistry<String, Integer> registry = new CacheRegistry<String, Integer>(15).spillTo(k -> new Cache<Integer>() {
+            @Override
+            public boolean exists() {
+                return store.containsKey(k);
+            }
+
+            @Override
+            public Seq<Integer> read() {
+                return Seq.of(store.get(k));
+            }
+
+            @Override
+            public void write(List<Integer> ts) {
+                store.put(k, new ArrayList<>(ts));
+            }
+        });
+        registry.invalidate("a");
+        assert registry.get("a", () -> IntSeq.range(10).boxed()).count() == 10;
+        registry.invalidate("a");
+        assert registry.size() == 0;
+        registry.get("a", () -> IntSeq.range(10).boxed());
+        registry.get("b", () -> IntSeq.range(10).boxed());
+        assert store.containsKey("a") && registry.evictions() == 1;
+        registry.clear();
+        assert registry.size() == 0;
+    }
+
+    @Test
+    public void testMemoize() {
+        int[] produced = new int[1];
+        Seq<Integer> seq = IntSeq.range(1000).boxed().onEach(i -> produced[0]++).memoize(4);
+        seq.take(3).assertTo("0,1,2");
+        assert produced[0] < 20;
+        seq.take(5).assertTo("0,1,2,3,4");
+        assert seq.first() == 0;
+        assert seq.count() == 1000;
+        assert produced[0] == 1000;
+        assert ((MemoSeq<Integer>)seq).isComplete();
+        assert seq.sizeOrDefault() == 1000;
+        assert seq.sum(i -> i) == 999 * 500;
+
+        Seq<Integer> endless = Seq.gen(1, i -> i + 1).memoize();
+        endless.take(3).assertTo("1,2,3");
+        endless.take(5).assertTo("1,2,3,4,5");
+        ((MemoSeq<Integer>)endless).close();
+        assert ((MemoSeq<Integer>)endless).isComplete();
+        assert endless.count() >= 5;
+
+        Iterator<Integer> it = Arrays.asList(1, 2, 3, 4, 5, 6).iterator();
+        Seq<Integer> once = Seq.of(() -> it).memoize();
+        once.take(2).assertTo("1,2");
+        once.take(4).assertTo("1,2,3,4");
+        once.assertTo("1,2,3,4,5,6");
+        once.assertTo("1,2,3,4,5,6");
+        Seq<Integer> picked = PickItr.flat(Collections.singletonList(Arrays.asList(1, 2, 3, 4)).iterator()).memoize();
+        picked.take(1).assertTo("1");
+        picked.assertTo("1,2,3,4");
+    }
+
+    @Test
+    public void testShare() throws Exception {
+        AtomicInteger produced = new AtomicInteger();
+        Seq<Integer> seq = IntSeq.range(100000).boxed().onEach(i -> produced.incrementAndGet()).share();
+        assert seq.take(10).count() == 10;
+        int[] sums = new int[8];
+        Thread[] threads = new Thread[sums.length];
+        for (int t = 0; t < threads.length; t++) {
+            int id = t;
+            threads[t] = new Thread(() -> sums[id] = seq.sumInt(i -> i & 0xff));
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        int expected = IntSeq.range(100000).sum(i -> i & 0xff);
+        for (int sum : sums) {
+            assert sum == expected;
+        }
+        assert produced.get() <= 100011;
+        assert seq.sizeOrDefault() == 100000;
+        seq.take(3).assertTo("0,1,2");
+    }
+
+    @Test(timeout = 5000)
+    public void testShareNested() {
+        Seq<Integer> seq = Seq.of(1, 2, 3).map(i -> i * 10).share();
+        List<String> pairs = new ArrayList<>();
+        seq.supply(x -> seq.supply(y -> pairs.add(x + ":" + y)));
+        assert pairs.size() == 9 && pairs.get(0).equals("10:10") && pairs.get(8).equals("30:30");
+        seq.assertTo("10,20,30");
+        assert ((SharedSeq<Integer>)seq).isComplete();
+    }
+
+    @Test
+    public void testLines() throws IOException {
+        Path file = Files.createTempFile("seq", ".txt");
+        String longLine = Seq.repeat(100, "abcdefghij").join("");
+        String content = "first\r\nsecond \u4e2d\u6587\n\n" + longLine + "\nx\ud83d\ude00y\nlast";
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+        String expected = String.join("|", "first", "second \u4e2d\u6587", "", longLine, "x\ud83d\ude00y", "last");
+        SeqReader.lines().read(file).assertTo("|", expected);
+        SeqReader.lines(StandardCharsets.UTF_8, 16).read(file).assertTo("|", expected);
+        assert SeqReader.lines().read(file).filter(l -> l.startsWith("sec")).map(Line::toString).first().equals("second \u4e2d\u6587");
+        assert SeqReader.lines().read(file).count(l -> l.contains("ij")) == 1;
+        SeqReader.lines().read(file).take(2).map(Line::toString).assertTo("|", "first|second \u4e2d\u6587");
+        Files.write(file, "caf\u00e9\nna\u00efve".getBytes(StandardCharsets.ISO_8859_1));
+        SeqReader.lines(StandardCharsets.ISO_8859_1).read(file).assertTo("|", "caf\u00e9|na\u00efve");
+        Files.write(file, "\u4e2d\n\u6587".getBytes("GBK"));
+        SeqReader.lines(Charset.forName("GBK")).read(file).assertTo("|", "\u4e2d|\u6587");
+        Files.delete(file);
+    }
+
+    @Test
+    public void testLineEndings() throws IOException {
+        Path file = Files.createTempFile("seq", ".txt");
+        Random random = new Random(5);
+        String[] ends = {"\n", "\r", "\r\n"};
+        StringBuilder sb = new StringBuilder("\r\r\n");
+        for (int i = 0; i < 3000; i++) {
+            sb.append(i % 7 == 0 ? "" : "l" + i).append(ends[random.nextInt(3)]);
+        }
+        String content = sb.append("end\r").toString();
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+        String expected = Seq.of(new java.io.BufferedReader(new java.io.StringReader(content)).lines()::iterator).join("|");
+        SeqReader.lines().read(file).assertTo("|", expected);
+        for (int size : new int[]{16, 17, 64}) {
+            SeqReader.lines(StandardCharsets.UTF_8, size).read(file).assertTo("|", expected);
+        }
+        SeqReader.lines().parallel(true, 4, 101).read(file).assertTo("|", expected);
+        SeqReader.lines().parallel(true, 3, 7).read(file).assertTo("|", expected);
+        Files.delete(file);
+    }
+
+    @Test
+    public void testParallelLines() throws IOException {
+        Path file = Files.createTempFile("seq", ".txt");
+        List<String> expected = IntSeq.range(5000).boxed().map(i -> i % 97 == 0 ? "" : "line " + i).toList();
+        Files.write(file, (String.join("\r\n", expected)).getBytes(StandardCharsets.UTF_8));
+        String joined = String.join("|", expected);
+        SeqReader.lines().parallel(true, 4, 1000).read(file).assertTo("|", joined);
+        SeqReader.lines().parallel(true).read(file).assertTo("|", joined);
+        List<String> unordered = Collections.synchronizedList(new ArrayList<>());
+        SeqReader.lines().parallel(false, 4, 777).read(file).supply(unordered::add);
+        assert unordered.size() == expected.size();
+        assert new HashSet<>(unordered).equals(new HashSet<>(expected));
+        SeqReader.lines().parallel(true, 4, 100).read(file).take(3).assertTo(",line 1,line 2");
+        Files.delete(file);
+    }
+
+    @Test
+    public void testCsv() throws IOException {
+        Path file = Files.createTempFile("seq", ".csv");
+        String content = "id,name,score,big\r\n"
+            + "1,\"Smith, John\",3.25,9000000000\r\n"
+            + "\r\n"
+            + "-2,\"say \"\"hi\"\"\nthere\",1e3,-9223372036854775808\n"
+            + "3,plain,0.1,7\n"
+            + "4,short";
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+        for (int bufferSize : new int[]{16, 1 << 16}) {
+            SeqReader.Csv csv = SeqReader.csv().bufferSize(bufferSize);
+            csv.read(file).map(CsvRow::toString)
+                .assertTo("|", "id,name,score,big|1,Smith, John,3.25,9000000000|-2,say \"hi\"\nthere,1e3,-9223372036854775808|3,plain,0.1,7|4,short");
+            assert csv.withHeader().read(file).mapToInt(r -> r.getInt(0)).sum() == 6;
+            assert csv.select("big", "id").read(file).take(3).mapToLong(r -> r.getLong(0)).sum() == 9000000000L + Long.MIN_VALUE + 7;
+            csv.select(2, 1).withHeader().read(file).map(r -> r.getString(1) + ":" + r.isEmpty(0))
+                .assertTo("|", "Smith, John:false|say \"hi\"\nthere:false|plain:false|short:true");
+            double[] scores = csv.withHeader().select(2).read(file).take(3).mapToDouble(r -> r.getDouble(0)).toArray();
+            assert Arrays.equals(scores, new double[]{3.25, 1000, 0.1});
+        }
+        try {
+            SeqReader.csv().read(file).supply(r -> r.getInt(1));
+            assert false;
+        } catch (RuntimeException e) {
+            assert e.getCause().getCause() instanceof NumberFormatException;
+        }
+        Files.write(file, "a\tb\n1\t2\n".getBytes(StandardCharsets.UTF_8));
+        SeqReader.tsv().select("b").read(file).map(r -> r.getString(0)).assertTo("2");
+        assert LongSeq.of(1, 2, 3).filter(i -> i > 1).sum() == 5;
+        assert DoubleSeq.of(1.5, 2.5).map(d -> d * 2).boxed().join(",").equals("3.0,5.0");
+        Files.delete(file);
+    }
+
+    @Test
+    public void testNdjson() throws IOException {
+        Path file = Files.createTempFile("seq", ".jsonl");
+        String content = "{\"id\": 1, \"user\": {\"name\": \"a\\\"b\\u0021\", \"tags\": [1, {\"x\": \"}\"}]}, \"ok\": true, \"v\": 2.5}\n"
+            + "\n"
+            + "{\"skip\": {\"deep\": [[{}]]}, \"v\": -1e2, \"id\": 9000000000, \"ok\": false}\r\n"
+            + "{\"id\": \"7\", \"user\": null, \"v\": 0}";
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+        SeqReader.Ndjson reader = SeqReader.ndjson("id", "user.name", "ok", "v", "user.tags");
+        reader.read(file).map(r -> r.getString(0) + "|" + r.getString(1) + "|" + r.isNull(2) + "|" + r.getDouble(3) + "|" + r.getRaw(4))
+            .assertTo(";", "1|a\"b!|false|2.5|[1, {\"x\": \"}\"}];9000000000|null|false|-100.0|null;7|null|true|0.0|null");
+        assert reader.read(file).mapToLong(r -> r.getLong(0)).sum() == 9000000008L;
+        assert reader.bufferSize(16).read(file).count(r -> r.has(2) && r.getBoolean(2)) == 1;
+        assert SeqReader.ndjson("v").read(file).take(1).mapToDouble(r -> r.getDouble(0)).sum() == 2.5;
+        Files.write(file, "{\"id\": }".getBytes(StandardCharsets.UTF_8));
+        try {
+            reader.read(file).supply(r -> {});
+            assert false;
+        } catch (RuntimeException e) {
+            assert e.getCause().getCause() instanceof IllegalArgumentException;
+        }
+        Files.delete(file);
+    }
+
+    @Test
+    public void testCompressedInput() throws IOException {
+        Path dir = Files.createTempDirectory("seq");
+        Path gz = dir.resolve("a.log.gz");
+        try (OutputStream os = Files.newOutputStream(gz)) {
+            for (String part : new String[]{"a\nb\n", "c\nd"}) {
+                GZIPOutputStream member = new GZIPOutputStream(os);
+                member.write(part.getBytes(StandardCharsets.UTF_8));
+                member.finish();
+            }
+        }
+        SeqReader.text().read(gz.toString()).assertTo("a,b,c,d");
+        SeqReader.lines().read(gz).assertTo("a,b,c,d");
+        SeqReader.lines().parallel(true).read(gz).assertTo("a,b,c,d");
+        Path zz = dir.resolve("a.zz");
+        try (OutputStream os = Compression.DEFLATE.wrap(Files.newOutputStream(zz))) {
+            os.write("x\ny".getBytes(StandardCharsets.UTF_8));
+        }
+        SeqReader.lines().read(zz).assertTo("x,y");
+        Path bgz = dir.resolve("b.gz");
+        List<String> expected = IntSeq.range(200000).boxed().map(i -> "row " + i * 7).toList();
+        try (OutputStream os = Compression.BGZF.wrap(Files.newOutputStream(bgz))) {
+            os.write(String.join("\n", expected).getBytes(StandardCharsets.UTF_8));
+        }
+        String joined = String.join(",", expected);
+        SeqReader.lines().read(bgz).assertTo(joined);
+        SeqReader.text().read(bgz.toString()).assertTo(joined);
+        SeqReader.lines().read(bgz).take(2).assertTo("row 0,row 7");
+        try (InputStream is = new GZIPInputStream(Files.newInputStream(bgz))) {
+            SeqReader.text().read(() -> is).assertTo(joined);
+        }
+        FileCache<String> cache = new FileCache<>(dir.resolve("c.bin"), Codec.STRING).compress(Compression.BGZF);
+        cache.write(expected);
+        cache.read().assertTo(joined);
+        for (Path p : new Path[]{gz, zz, bgz, cache.path, dir}) {
+            Files.delete(p);
+        }
+    }
+
+    @Test
+    public void testSeqWriter() throws IOException {
+        Path dir = Files.createTempDirectory("seq");
+        Seq<Integer> seq = IntSeq.range(3000).boxed();
+        String joined = seq.join(",");
+        Path txt = dir.resolve("a.txt");
+        assert SeqWriter.text().bufferSize(100).write(seq, txt) == 3000;
+        SeqReader.lines().read(txt).assertTo(joined);
+        SeqWriter.text().async().bufferSize(100).compress(Compression.GZIP).write(seq, txt);
+        SeqReader.lines().read(txt).assertTo(joined);
+
+        Path csv = dir.resolve("a.csv");
+        Seq<String> names = Seq.of("plain", "a,b", "say \"hi\"", "x\ny", "\u4e2d");
+        SeqWriter.<String>csv((s, f) -> f.add(s.length()).add(s).add(s.length() / 2.0).add((Object)null))
+            .header("n,s,d,z").write(names, csv);
+        SeqReader.csv().select("s").read(csv).map(r -> r.getString(0)).assertTo("|", names.join("|"));
+        assert SeqReader.csv().select("n", "d").read(csv).mapToDouble(r -> r.getInt(0) - r.getDouble(1) * 2).sum() == 0;
+
+        Path json = dir.resolve("a.jsonl");
+        SeqWriter.<String>ndjson((s, f) -> f.put("s", s).put("n", s.length()).put("nan", Double.NaN).putRaw("o", "{\"k\":[1]}"))
+            .write(names, json);
+        SeqReader.ndjson("s", "n", "nan", "o.k").read(json).map(r -> r.getString(0) + r.getLong(1) + r.isNull(2) + r.getRaw(3))
+            .assertTo("|", names.map(s -> s + s.length() + "true[1]").join("|"));
+
+        Path bin = dir.resolve("a.bin");
+        SeqWriter.binary(Codec.STRING).write(names, bin);
+        SeqReader.binary(Codec.STRING).read(bin).assertTo("|", names.join("|"));
+        SeqWriter.binary(Codec.INT).async().bufferSize(64).write(seq, bin);
+        assert SeqReader.binary(Codec.INT).read(bin).count() == 3000;
+
+        Path log = dir.resolve("r.log");
+        SeqWriter.text().header("#").rotate(1000).async().bufferSize(256).write(seq, log);
+        List<Path> files = Seq.of(Files.list(dir)::iterator).filter(p -> p.getFileName().toString().startsWith("r")).sorted(p -> {
+            String name = p.getFileName().toString();
+            return name.equals("r.log") ? 0 : Integer.parseInt(name.substring(2, name.length() - 4));
+        });
+        assert files.size() > 10;
+        assert Seq.of(files).all(p -> p.toFile().length() <= 1000 + 2 + 5);
+        Seq.of(files).flatMap(p -> SeqReader.lines().read(p).map(Line::toString)).filter(l -> !l.equals("#")).assertTo(joined);
+
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        SeqWriter.text().write(Seq.of("a", "b"), bos);
+        assert bos.toString("UTF-8").equals("a\nb\n");
+        SeqWriter<String> plain = SeqWriter.text();
+        SeqWriter<String> gzip = plain.header("#").compress(Compression.GZIP);
+        bos.reset();
+        plain.write(Seq.of("a"), bos);
+        assert bos.toString("UTF-8").equals("a\n") && gzip != plain;
+        Seq.of(Files.list(dir)::iterator).supply(p -> p.toFile().delete());
+        Files.delete(dir);
+    }
+
+    @Test
+    public void testMultiFile() throws IOException {
+        Path dir = Files.createTempDirectory("seq");
+        Files.createDirectories(dir.resolve("x/y"));
+        List<Path> paths = new ArrayList<>();
+        for (int k = 0; k < 20; k++) {
+            int i = k;
+            Path p = dir.resolve(i % 3 == 0 ? "x/y" : i % 3 == 1 ? "x" : ".").resolve(String.format("f%02d.log", i));
+            String content = IntSeq.range(100).boxed().map(j -> i + ":" + j).join("\n");
+            SeqWriter.text().compress(i % 2 == 0 ? Compression.GZIP : Compression.NONE).write(Seq.of(content), p);
+            paths.add(p);
+        }
+        Files.write(dir.resolve("x/skip.txt"), "no".getBytes(StandardCharsets.UTF_8));
+        Seq<Path> logs = SeqReader.files(dir, "**.log");
+        assert logs.count() == 20;
+        assert SeqReader.files(dir).count() == 21;
+        Seq<Path> ordered = Seq.of(paths).sorted(p -> p.toString());
+        String expected = ordered.flatMap(p -> SeqReader.lines().read(p).map(Line::toString)).join(",");
+        SeqReader.lines().readAll(ordered).map(Line::toString).assertTo(expected);
+        List<String> unordered = Collections.synchronizedList(new ArrayList<>());
+        SeqReader.lines().readAll(ordered, 3, false).supply(l -> unordered.add(l.toString()));
+        Seq.of(unordered).sorted().assertTo(",", Seq.of(expected.split(",")).sorted().join(","));
+        SeqReader.text().readAll(logs, 4, true).assertTo(SeqReader.files(dir, "**.log").flatMap(p -> SeqReader.text().read(p.toFile())).join(","));
+        AtomicInteger seen = new AtomicInteger();
+        SeqReader.lines().readAll(ordered, 4, false).tillStop(l -> {
+            if (seen.incrementAndGet() >= 150) {
+                throw Seq0.StopException.INSTANCE;
+            }
+        });
+        assert seen.get() >= 150 && seen.get() < 2000;
+        MultiFileReader.read(ordered, 2, true, 64, p -> SeqReader.lines().read(p).map(Line::toString),
+            bytes -> Seq.of(new String(bytes, StandardCharsets.UTF_8).split("\n"))).assertTo(expected);
+        SeqReader.files(dir).sortedDesc(p -> p.getNameCount()).supply(p -> p.toFile().delete());
+        Files.delete(dir.resolve("x/y"));
+        Files.delete(dir.resolve("x"));
+        Files.delete(dir);
+    }
+
+    @Test
+    public void testRecords() throws IOException {
+        Path dir = Files.createTempDirectory("seq");
+        Path bin = dir.resolve("a.bin");
+        ByteBuffer buf = ByteBuffer.allocate(4 + 1000 * 20).order(ByteOrder.LITTLE_ENDIAN).putInt(0xcafe);
+        for (int i = 0; i < 1000; i++) {
+            buf.putInt(i).putLong(i * 1000L).putDouble(i / 4.0);
+        }
+        Files.write(bin, buf.array());
+        SeqReader.Records records = SeqReader.records(20).skip(4);
+        assert records.ints(0, bin).sum() == 999 * 1000 / 2;
+        assert records.longs(4, bin).max() == 999000;
+        assert records.doubles(12, bin).sum() == 999 * 1000 / 8.0;
+        records.ints(0, bin).take(3).boxed().assertTo("0,1,2");
+        records.read(bin).filter(r -> r.getInt(0) % 250 == 0).map(r -> r.index() + ":" + r.getLong(4) + ":" + r.getDouble(12))
+            .assertTo("0:0:0.0,250:250000:62.5,500:500000:125.0,750:750000:187.5");
+        buf.flip().position(4);
+        assert SeqReader.records(20).ints(0, buf).count() == 1000;
+        assert SeqReader.records(20).read(buf).all(r -> r.getLong(4) == r.getInt(0) * 1000L);
+        assert buf.position() == 4;
+        assert SeqReader.records(4).order(ByteOrder.BIG_ENDIAN).ints(0, bin).first() == Integer.reverseBytes(0xcafe);
+        try {
+            SeqReader.records(20).read(bin).count();
+            assert false;
+        } catch (RuntimeException e) {
+            assert e.getCause().getCause() instanceof EOFException;
+        }
+        try {
+            records.ints(18, bin);
+            assert false;
+        } catch (IndexOutOfBoundsException ignore) {}
+        Files.delete(bin);
+        Files.delete(dir);
+    }
+
     @Test
     public void testChunked() {
         List<Integer> list = Arrays.asList(0, 2, 4, 1, 6, 3, 5, 7, 10, 11, 12);
@@ -138,6 +679,71 @@ public class SeqTest {
         list.assertTo("3,4,5");
     }
 
+    @Test
+    public void testUnrolledQueue() {
+        UnrolledList<Integer> list = new UnrolledList<>();
+        assert list.toString().equals("[]");
+        assert list.poll() == null;
+        IntSeq.range(20).boxed().supply(list::offer);
+        assert list.size() == 20;
+        assert list.get(19) == 19;
+        list.assertTo(",", IntSeq.range(20).boxed().join(","));
+        Random random = new Random(7);
+        ArrayDeque<Integer> expected = new ArrayDeque<>(list);
+        for (int i = 20; i < 5000; i++) {
+            if (random.nextInt(3) > 0) {
+                list.offer(i);
+                expected.offer(i);
+            } else {
+                assert Objects.equals(list.poll(), expected.poll());
+            }
+            assert list.size() == expected.size();
+            assert Objects.equals(list.peek(), expected.peek());
+        }
+        assert list.get(list.size() - 1).equals(expected.peekLast());
+        assert new ArrayList<>(list).equals(new ArrayList<>(expected));
+        list.assertTo(",", Seq.of(expected).join(","));
+    }
+
+    @Test
+    public void testMpscQueue() throws InterruptedException {
+        MpscQueue<int[]> queue = new MpscQueue<>();
+        assert queue.poll() == null && queue.isEmpty();
+        int producers = 4, n = 50_000;
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            int id = p;
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < n; i++) {
+                    queue.offer(new int[]{id, i});
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        int[] next = new int[producers];
+        int received = 0;
+        while (received < producers * n) {
+            int[] e = queue.poll();
+            if (e == null) {
+                Thread.yield();
+                continue;
+            }
+            assert e[1] == next[e[0]]++;
+            received++;
+        }
+        for (Thread t : threads) {
+            t.join();
+        }
+        assert queue.poll() == null && queue.size() == 0;
+        MpscQueue<Integer> q = new MpscQueue<>();
+        IntSeq.range(5).boxed().supply(q::add);
+        q.assertTo("0,1,2,3,4");
+        assert q.remove() == 0 && q.peek() == 1 && q.get(3) == 4;
+        List<Integer> drained = new ArrayList<>();
+        assert q.drain(drained::add) == 4 && q.isEmpty();
+        assert drained.equals(Arrays.asList(1, 2, 3, 4));
+    }
+
     @Test
     public void testSubLists() {
         IntSeq.of("233(ab:c)114514(d:e:f:g)42")
@@ -219,6 +825,266 @@ public class SeqTest {
             .assertTo("1=1.1,2=2.2,3=3.3,4=4.4");
     }
 
+    @Test
+    public void testSeqMapView() {
+        SeqMap<Integer, Integer> map = Seq.of(1, 2, 3, 4, 5, 6).toMapWith(i -> i * 10);
+        AtomicInteger calls = new AtomicInteger();
+        SeqMap<Integer, String> view = map.filterKeysView(k -> k % 2 == 0)
+            .mapValuesView((k, v) -> {
+                calls.incrementAndGet();
+                return k + ":" + v;
+            })
+            .filterValuesView(s -> !s.startsWith("4"));
+        assert calls.get() == 0;
+        assert view.get(6).equals("6:60");
+        assert view.get(4) == null && view.get(3) == null && view.get(7) == null;
+        assert view.containsKey(2) && !view.containsKey(4);
+        assert calls.get() == 4;
+        assert view.size() == 2;
+        view.assertTo("2=2:20,6=6:60");
+        map.put(8, 80);
+        view.keySet().assertTo("2,6,8");
+        SeqMap<Integer, String> copy = view.materialize();
+        assert copy.map.getClass() == map.map.getClass();
+        map.clear();
+        assert view.isEmpty() && copy.size() == 3;
+        try {
+            view.put(1, "");
+            assert false;
+        } catch (UnsupportedOperationException ignore) {}
+    }
+
+    @Test
+    public void testCountingMap() {
+        Seq<String> words = Seq.of("a", "bb", "a", "ccc", "bb", "a", null);
+        ObjIntSeqMap<String> counts = words.countBy(w -> w);
+        assert counts.size() == 4 && counts.get("a") == 3 && counts.get("bb") == 2 && counts.get(null) == 1;
+        assert counts.get("zz") == 0 && counts.getOrDefault("zz", -1) == -1;
+        counts.filter(p -> p.first > 1).map(p -> p.second).sorted().assertTo("a,bb");
+        assert counts.values().sum() == 7 && counts.sum() == 7;
+        assert counts.toSeqMap().get("ccc") == 1;
+        ObjLongSeqMap<Integer> sums = IntSeq.range(1000).boxed().sumLongBy(i -> i % 3, i -> i * 1000000000L);
+        assert sums.get(0) == IntSeq.range(1000).boxed().filter(i -> i % 3 == 0).sumLong(i -> i * 1000000000L);
+        assert words.sumIntBy(w -> w == null ? 0 : w.length(), w -> 1).get(1) == 3;
+
+        Random random = new Random(1);
+        Map<Integer, Integer> expected = new HashMap<>();
+        ObjIntSeqMap<Integer> map = new ObjIntSeqMap<>(4);
+        for (int i = 0; i < 20000; i++) {
+            int k = random.nextInt(500), v = random.nextInt(10);
+            switch (random.nextInt(3)) {
+                case 0:
+                    expected.merge(k, v, Integer::sum);
+                    map.addTo(k, v);
+                    break;
+                case 1:
+                    Integer old = expected.put(k, v);
+                    assert map.put(k, v) == (old == null ? 0 : old);
+                    break;
+                default:
+                    old = expected.remove(k);
+                    assert map.remove(k) == (old == null ? 0 : old);
+            }
+        }
+        assert map.size() == expected.size();
+        map.forEachInt((k, v) -> {
+            assert expected.get(k) == v;
+        });
+        map.clear();
+        assert map.isEmpty() && !map.containsKey(1);
+    }
+
+    @Test
+    public void testPrimitiveKeyMap() {
+        Seq<String> words = Seq.of("a", "bb", "cc", "", "ddd", "e");
+        IntObjSeqMap<BatchList<String>> byLength = words.groupByInt(String::length);
+        assert byLength.size() == 4;
+        byLength.get(2).assertTo("bb,cc");
+        byLength.get(0).assertTo("");
+        assert byLength.get(5) == null && byLength.containsKey(0) && !byLength.containsKey(5);
+        byLength.keys().boxed().sorted().assertTo("0,1,2,3");
+        IntObjSeqMap<String> joined = words.groupByInt(String::length, s -> s.join("+"));
+        assert joined.get(1).equals("a+e");
+        Seq.of(1L << 40, 1L << 41, 1L << 40).withLong(i -> i).groupByLong(p -> p.first, s -> s.count())
+            .map(p -> p.first + "=" + p.second).sorted().assertTo("1099511627776=2,2199023255552=1");
+
+        Random random = new Random(2);
+        Map<Long, Integer> expected = new HashMap<>();
+        LongObjSeqMap<Integer> map = new LongObjSeqMap<>(2);
+        for (int i = 0; i < 20000; i++) {
+            long k = random.nextInt(300) - 150;
+            int v = random.nextInt();
+            if (random.nextBoolean()) {
+                assert Objects.equals(map.put(k, v), expected.put(k, v));
+            } else {
+                assert Objects.equals(map.remove(k), expected.remove(k));
+            }
+        }
+        assert map.size() == expected.size();
+        map.forEachEntry((k, v) -> {
+            assert expected.get(k).equals(v);
+        });
+        assert map.computeIfAbsent(1000, k -> (int)k * 2) == 2000 && map.computeIfAbsent(1000, k -> 0) == 2000;
+        map.clear();
+        assert map.isEmpty() && map.get(0) == null;
+    }
+
+    @Test
+    public void testTee() {
+        AtomicInteger reads = new AtomicInteger();
+        Tee<Integer> tee = IntSeq.range(1, 101).boxed().onEach(i -> reads.incrementAndGet()).tee();
+        Mutable<Integer> count = tee.count();
+        Mutable<Integer> even = tee.count(i -> i % 2 == 0);
+        Mutable<Long> sum = tee.sumLong(i -> i);
+        Mutable<Double> average = tee.average(i -> i);
+        Mutable<Integer> max = tee.max(Comparator.naturalOrder());
+        Mutable<String> digits = tee.fold("", (s, i) -> i % 10 == 0 ? s + i / 10 : s);
+        Mutable<ObjIntSeqMap<Integer>> byMod = tee.countBy(i -> i % 3);
+        Mutable<List<Integer>> collected = tee.collect(Collectors.toList());
+        Tee<String> branch = tee.branch(s -> s.filter(i -> i > 95).map(i -> "#" + i));
+        Mutable<BatchList<String>> tail = branch.toList();
+        Mutable<Integer> firstThree = tee.branch(s -> s.take(3)).sumInt(i -> i);
+        tee.run();
+        assert reads.get() == 100;
+        assert count.it == 100 && even.it == 50 && sum.it == 5050 && average.it == 50.5 && max.it == 100;
+        assert digits.it.equals("12345678910") && byMod.it.get(0) == 33 && collected.it.size() == 100;
+        tail.it.assertTo("#96,#97,#98,#99,#100");
+        assert firstThree.it == 6;
+        try {
+            tee.run();
+            assert false;
+        } catch (IllegalStateException ignore) {}
+
+        Tee<Integer> endless = Seq.gen(1, i -> i + 1).tee();
+        Mutable<BatchList<Integer>> first = endless.branch(s -> s.take(2)).toList();
+        Mutable<Integer> odd = endless.branch(s -> s.filter(i -> i % 2 > 0).take(5)).count();
+        endless.run();
+        first.it.assertTo("1,2");
+        assert odd.it == 5;
+    }
+
+    @Test
+    public void testFilterIn() {
+        Seq<Integer> seq = IntSeq.range(20).boxed();
+        List<Integer> list = IntSeq.range(0, 100000, 3).boxed().toList();
+        seq.filterIn(list).assertTo("0,3,6,9,12,15,18");
+        seq.filterNotIn(IntSeq.range(0, 20, 2).boxed()).assertTo("1,3,5,7,9,11,13,15,17,19");
+        seq.filterIn(Seq.of(5, 6, 100)).assertTo("5,6");
+        seq.filterNotIn(IntSeq.range(13).boxed().toBatchList()).assertTo("13,14,15,16,17,18,19");
+        seq.filterIn(SeqList.of(Arrays.asList(1, 2))).assertTo("1,2");
+        seq.filterIn(Arrays.asList(4, 2)).assertTo("2,4");
+
+        BloomFilter<Integer> bloom = BloomFilter.of(IntSeq.range(0, 200000, 2).boxed(), 100000, 0.01);
+        assert IntSeq.range(0, 200000, 2).boxed().all(bloom);
+        int falsePositives = IntSeq.range(1, 200000, 2).boxed().filterIn(bloom).count();
+        assert falsePositives > 0 && falsePositives < 2000 : falsePositives;
+        assert IntSeq.range(1, 200000, 2).boxed().filterNotIn(bloom).count() == 100000 - falsePositives;
+        Set<Integer> exact = new HashSet<>(IntSeq.range(0, 200000, 2).boxed().toList());
+        assert IntSeq.range(200000).boxed().filter(bloom.and(exact::contains)).count() == 100000;
+        try {
+            new BloomFilter<Integer>(10, 1);
+            assert false;
+        } catch (IllegalArgumentException ignore) {}
+    }
+
+    @Test
+    public void testSample() {
+        Random random = new Random(3);
+        int[] hits = new int[100];
+        for (int k = 0; k < 2000; k++) {
+            for (int i : IntSeq.range(100).sample(5, random)) {
+                hits[i]++;
+            }
+        }
+        assert IntSeq.of(hits).all(h -> h > 50 && h < 150) : Arrays.toString(hits);
+        SeqList<Integer> sample = IntSeq.range(1000000).boxed().sample(10, random);
+        assert sample.size() == 10 && sample.toSet().size() == 10;
+        IntSeq.range(3).boxed().sample(10, random).assertTo("0,1,2");
+        assert IntSeq.range(10).sample(0, random).length == 0;
+        assert LongSeq.of(5, 6, 7).sample(2, random).length == 2;
+        assert IntSeq.range(1000).boxed().sample(10).toSet().size() == 10;
+        assert IntSeq.range(1000).sample(10, null).length == 10;
+        assert LongSeq.of(1, 2, 3, 4, 5).sample(3).length == 3;
+
+        int kept = IntSeq.range(1000000).sampleFraction(0.01, random).count();
+        assert kept > 9000 && kept < 11000 : kept;
+        assert IntSeq.range(100000).boxed().sampleFraction(0.1).count() > 9000;
+        assert IntSeq.range(100).sampleFraction(1).count() == 100;
+        assert LongSeq.of(1, 2, 3).sampleFraction(0, random).count() == 0;
+        IntSeq.range(1000).boxed().sampleFraction(0.5, new Random(4)).assertTo(
+            IntSeq.range(1000).boxed().sampleFraction(0.5, new Random(4)).join(","));
+    }
+
+    @Test
+    public void testHeavyHitters() {
+        Random random = new Random(5);
+        Seq<Integer> stream = IntSeq.range(200000).boxed().map(i -> i % 2 == 0 ? random.nextInt(10) : 10 + random.nextInt(100000)).cache();
+        ObjIntSeqMap<Integer> exact = stream.countBy(i -> i);
+        HeavyHitters<Integer> hh = stream.heavyHitters(i -> i, 10, 100);
+        assert hh.total() == 200000;
+        SeqList<HeavyHitters.Counter<Integer>> top = hh.top();
+        top.map(c -> c.key).sorted().assertTo("0,1,2,3,4,5,6,7,8,9");
+        long bound = hh.total() / hh.capacity();
+        assert top.all(c -> c.count >= exact.get(c.key) && c.lowerBound() <= exact.get(c.key) && c.error <= bound);
+        assert hh.estimate(-1) == hh.minCount() && hh.minCount() <= bound;
+
+        HeavyHitters<Integer> left = stream.take(100000).heavyHitters(i -> i, 10, 100);
+        HeavyHitters<Integer> right = stream.drop(100000).heavyHitters(i -> i, 10, 100);
+        HeavyHitters<Integer> merged = left.merge(right);
+        assert merged.total() == 200000;
+        merged.top().map(c -> c.key).sorted().assertTo("0,1,2,3,4,5,6,7,8,9");
+        assert merged.top().all(c -> c.count >= exact.get(c.key) && c.lowerBound() <= exact.get(c.key));
+        assert Seq.of("a", "b", "a").heavyHitters(s -> s, 1).top().first().count == 2;
+    }
+
+    @Test
+    public void testGroupBySpilling() throws IOException {
+        Path tmp = Paths.get(System.getProperty("java.io.tmpdir"));
+        Supplier<Integer> spillDirs = () -> Seq.of(() -> {
+            try {
+                return Files.list(tmp).iterator();
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }).count(p -> p.getFileName().toString().startsWith("seq-group"));
+        int dirs = spillDirs.get();
+        Seq<String> seq = IntSeq.range(50000).boxed().map(i -> i % 997 + ":" + i);
+        Function<String, String> key = s -> s.substring(0, s.indexOf(':'));
+        SeqMap<String, BatchList<String>> expected = seq.groupBy(key);
+        Seq<Pair<String, BatchList<String>>> groups = seq.groupBySpilling(key, Codec.STRING, 20000);
+        assert groups.count() == 997;
+        assert groups.all(p -> p.second.join(",").equals(expected.get(p.first).join(",")));
+        assert seq.groupBySpilling(key, Codec.STRING, 1 << 30).count() == 997;
+        assert seq.groupBySpilling(s -> "same", Codec.STRING, 1000).map(p -> p.second.size()).first() == 50000;
+        groups.take(3).assertTo("|", groups.take(3).join("|"));
+        assert spillDirs.get() == dirs;
+    }
+
+    @Test
+    public void testIterator() {
+        CloseableItr<Integer> itr = Seq.gen(1, i -> i + 1).iterator(4);
+        for (int i = 1; i <= 10; i++) {
+            assert itr.next() == i;
+        }
+        itr.close();
+        assert !itr.hasNext();
+        CloseableItr<Integer> cached = Seq.gen(1, i -> i + 1).iterator(4);
+        assert cached.hasNext();
+        cached.close();
+        assert !cached.hasNext();
+        try {
+            cached.next();
+            assert false;
+        } catch (NoSuchElementException ignore) {}
+
+        Iterator<Integer> finite = Seq.of(1, 2, 3).map(i -> i * 10).iterator(2);
+        assert finite.next() == 10 && finite.next() == 20 && finite.next() == 30;
+        assert !finite.hasNext();
+
+        Seq.of(1, 2, 3).zip(Seq.gen(1, i -> i * 2), 2).map((i, j) -> i + ":" + j).assertTo("1:1,2:2,3:4");
+        Seq.of(1, 2, 3, 4).zip(Seq.of("a", "b").map(s -> s), 1).map((i, s) -> i + s).assertTo("1a,2b");
+    }
+
     @Test
     public void testTree() {
         Node n0 = new Node(0);